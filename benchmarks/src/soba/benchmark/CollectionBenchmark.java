@@ -0,0 +1,90 @@
+package soba.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import soba.util.IntPairList;
+import soba.util.IntPairSet;
+import soba.util.ObjectIdMap;
+
+/**
+ * Micro-benchmarks for collections used by analyses.
+ * The values simulate edges among instructions in a large method.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CollectionBenchmark {
+
+	@Param({"1000", "100000"})
+	public int size;
+
+	private int[] first;
+	private int[] second;
+	private String[] items;
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(0);
+		first = new int[size];
+		second = new int[size];
+		items = new String[size];
+		for (int i=0; i<size; ++i) {
+			first[i] = random.nextInt(size);
+			second[i] = random.nextInt(size);
+			items[i] = "item" + i;
+		}
+	}
+
+	@Benchmark
+	public IntPairList intPairListAddAndSort() {
+		IntPairList list = new IntPairList();
+		for (int i=0; i<size; ++i) {
+			list.add(first[i], second[i]);
+		}
+		list.sort();
+		return list;
+	}
+
+	@Benchmark
+	public int intPairSetAddAndContains() {
+		IntPairSet set = new IntPairSet();
+		for (int i=0; i<size; ++i) {
+			set.add(first[i], second[i]);
+		}
+		int count = 0;
+		for (int i=0; i<size; ++i) {
+			if (set.contains(second[i], first[i])) count++;
+		}
+		return count;
+	}
+
+	@Benchmark
+	public int objectIdMapAddAndGetId() {
+		ObjectIdMap<String> map = new ObjectIdMap<String>(size);
+		for (int i=0; i<size; ++i) {
+			map.add(items[i]);
+		}
+		map.freeze();
+		int sum = 0;
+		for (int i=0; i<size; ++i) {
+			sum += map.getId(items[i]);
+		}
+		return sum;
+	}
+}
@@ -0,0 +1,107 @@
+package soba.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import soba.core.ClassInfo;
+import soba.core.JavaProgram;
+import soba.core.ProgramOptions;
+import soba.util.files.ClasspathUtil;
+import soba.util.files.FileUtil;
+import soba.util.files.IClassList;
+import soba.util.files.IClassListCallback;
+
+/**
+ * This class provides a set of class files used by benchmarks.
+ * The default corpus is SOBA, ASM and GNU Trove jar files in the local Maven repository.
+ * The corpus can be replaced by a system property "soba.benchmark.corpus"
+ * specifying a list of directories and jar files separated by the path separator.
+ */
+public class Corpus {
+
+	private static final String[] DEFAULT_JARS = {
+		"jp/naist/se/soba/soba/0.2.0/soba-0.2.0.jar",
+		"org/ow2/asm/asm/9.0/asm-9.0.jar",
+		"org/ow2/asm/asm-tree/9.0/asm-tree-9.0.jar",
+		"org/ow2/asm/asm-analysis/9.0/asm-analysis-9.0.jar",
+		"net/sf/trove4j/trove4j/3.0.3/trove4j-3.0.3.jar"
+	};
+
+	/**
+	 * @return class lists of the corpus.
+	 */
+	public static IClassList[] getClassLists() {
+		String corpus = System.getProperty("soba.benchmark.corpus");
+		if (corpus != null) {
+			return ClasspathUtil.getClassList(corpus.split(File.pathSeparator));
+		}
+		String repository = System.getProperty("maven.repo.local",
+				System.getProperty("user.home") + File.separator + ".m2" + File.separator + "repository");
+		List<String> files = new ArrayList<String>();
+		for (String jar: DEFAULT_JARS) {
+			File f = new File(repository, jar);
+			if (!f.isFile()) {
+				throw new IllegalStateException(f.getAbsolutePath() + " is not found.  Run \"mvn install\" for SOBA.");
+			}
+			files.add(f.getAbsolutePath());
+		}
+		return ClasspathUtil.getClassList(files);
+	}
+
+	/**
+	 * @return the contents of class files in the corpus.
+	 */
+	public static List<byte[]> readClassFiles() {
+		final List<byte[]> files = new ArrayList<byte[]>();
+		for (IClassList list: getClassLists()) {
+			list.process(new IClassListCallback() {
+				@Override
+				public boolean isTarget(String name) {
+					return name.endsWith(".class");
+				}
+
+				@Override
+				public void process(String name, InputStream stream) throws IOException {
+					files.add(FileUtil.readFully(stream));
+				}
+
+				@Override
+				public boolean reportError(String name, Exception e) {
+					throw new IllegalStateException(name, e);
+				}
+			});
+		}
+		return files;
+	}
+
+	/**
+	 * Parses all the class files.
+	 * @param files are the contents of class files.
+	 * @return a list of classes.
+	 */
+	public static List<ClassInfo> parse(List<byte[]> files, ClassInfo.ParseProfile profile) throws IOException {
+		List<ClassInfo> classes = new ArrayList<ClassInfo>(files.size());
+		for (byte[] bytes: files) {
+			classes.add(new ClassInfo(null, bytes, null, profile));
+		}
+		return classes;
+	}
+
+	/**
+	 * @return a program including all classes in the corpus.
+	 */
+	public static JavaProgram load() {
+		return load(new ProgramOptions());
+	}
+
+	/**
+	 * @param options specifies how to load classes.
+	 * @return a program including all classes in the corpus.
+	 */
+	public static JavaProgram load(ProgramOptions options) {
+		return new JavaProgram(getClassLists(), null, options);
+	}
+}
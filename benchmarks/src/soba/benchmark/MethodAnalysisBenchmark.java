@@ -0,0 +1,91 @@
+package soba.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import soba.core.ClassInfo;
+import soba.core.MethodInfo;
+
+/**
+ * Measures the throughput of analyzing all methods in the corpus.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MINUTES)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MethodAnalysisBenchmark {
+
+	/**
+	 * Classes whose methods are not analyzed yet.
+	 * Since <code>MethodInfo</code> keeps its analysis result,
+	 * the classes are parsed again for each invocation.
+	 */
+	@State(Scope.Thread)
+	public static class FreshClasses {
+
+		private List<byte[]> files;
+		private List<ClassInfo> classes;
+
+		@Setup(Level.Trial)
+		public void readFiles() {
+			files = Corpus.readClassFiles();
+		}
+
+		@Setup(Level.Invocation)
+		public void parse() throws IOException {
+			classes = Corpus.parse(files, ClassInfo.ParseProfile.FULL);
+		}
+	}
+
+	/**
+	 * Classes whose control-flow graphs are already computed.
+	 */
+	@State(Scope.Benchmark)
+	public static class AnalyzedClasses {
+
+		private List<ClassInfo> classes;
+
+		@Setup(Level.Trial)
+		public void analyze() throws IOException {
+			classes = Corpus.parse(Corpus.readClassFiles(), ClassInfo.ParseProfile.FULL);
+			for (ClassInfo c: classes) {
+				for (MethodInfo m: c.getMethods()) {
+					m.getControlFlow();
+				}
+			}
+		}
+	}
+
+	@Benchmark
+	public void dataDependence(FreshClasses state, Blackhole bh) {
+		for (ClassInfo c: state.classes) {
+			for (MethodInfo m: c.getMethods()) {
+				bh.consume(m.getDataDependence());
+			}
+		}
+	}
+
+	@Benchmark
+	public void controlDependence(AnalyzedClasses state, Blackhole bh) {
+		for (ClassInfo c: state.classes) {
+			for (MethodInfo m: c.getMethods()) {
+				bh.consume(m.getControlDependence());
+			}
+		}
+	}
+}
@@ -0,0 +1,46 @@
+package soba.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import soba.core.ClassInfo;
+
+/**
+ * Measures the throughput of parsing all class files in the corpus.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ParseBenchmark {
+
+	@Param({"FULL", "LAZY", "SIGNATURES", "HEADER"})
+	public ClassInfo.ParseProfile profile;
+
+	private List<byte[]> files;
+
+	@Setup
+	public void setUp() {
+		files = Corpus.readClassFiles();
+	}
+
+	@Benchmark
+	public List<ClassInfo> parseClasses() throws IOException {
+		return Corpus.parse(files, profile);
+	}
+}
@@ -0,0 +1,88 @@
+package soba.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import soba.core.ClassHierarchy;
+import soba.core.ClassInfo;
+import soba.core.JavaProgram;
+import soba.core.MethodInfo;
+import soba.core.ProgramOptions;
+import soba.core.method.CallSite;
+import soba.core.vta.VTAResolver;
+import soba.util.callgraph.CallGraph;
+
+/**
+ * Measures the throughput of resolving method calls in the corpus.
+ * Data dependence of methods is computed before the measurement;
+ * the benchmarks measure the resolution and graph construction only.
+ * The class hierarchy is frozen or not by a parameter,
+ * since a frozen hierarchy caches the resolved calls.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MINUTES)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ResolverBenchmark {
+
+	@Param({"false", "true"})
+	private boolean frozen;
+
+	private JavaProgram program;
+	private List<CallSite> callSites;
+	private VTAResolver vta;
+
+	@Setup
+	public void setUp() {
+		ProgramOptions options = new ProgramOptions();
+		options.setFrozenHierarchy(frozen);
+		program = Corpus.load(options);
+		callSites = new ArrayList<CallSite>();
+		for (ClassInfo c: program.getClasses()) {
+			for (MethodInfo m: c.getMethods()) {
+				callSites.addAll(m.getCallSites());
+				m.getDataDependence();
+			}
+		}
+		vta = new VTAResolver(program);
+	}
+
+	@Benchmark
+	public void resolveCall(Blackhole bh) {
+		ClassHierarchy ch = program.getClassHierarchy();
+		for (CallSite cs: callSites) {
+			bh.consume(ch.resolveCall(cs));
+		}
+	}
+
+	@Benchmark
+	public VTAResolver createVTAResolver() {
+		return new VTAResolver(program);
+	}
+
+	@Benchmark
+	public CallGraph createCallGraphByCHA() {
+		return new CallGraph(program);
+	}
+
+	@Benchmark
+	public CallGraph createCallGraphByVTA() {
+		return new CallGraph(program, vta);
+	}
+}
@@ -0,0 +1,320 @@
+package soba.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import soba.core.method.DataDependence;
+import soba.core.method.DataFlowEdgeList;
+import soba.util.IntPairList;
+import soba.util.IntPairProc;
+import soba.util.graph.DirectedGraph;
+
+/**
+ * This class stores analysis results of methods in a local directory.
+ * A file is created for each class and is identified by
+ * the MD5 hash value of the class file and <code>FORMAT_VERSION</code>.
+ * The file includes control-flow, control dependence and data dependence edges
+ * of all the methods in the class.
+ * A <code>MethodInfo</code> object restores the edges from the file
+ * instead of analyzing the method.
+ * An object can be shared by multiple programs and threads.
+ * A file that cannot be read or written does not stop an analysis;
+ * the methods are analyzed instead, and the failure is recorded
+ * by <code>getReadFailureCount</code>, <code>getWriteFailureCount</code> 
+ * and <code>getLastFailure</code>.
+ */
+public class AnalysisCache {
+
+	/**
+	 * The version of the file format.
+	 * Files created by other versions are ignored.
+	 */
+	public static final int FORMAT_VERSION = 1;
+
+	private static final int MAGIC = 0x534f4241; // "SOBA"
+	private static final String SUFFIX = ".v" + FORMAT_VERSION;
+
+	private File dir;
+	private AtomicLong readFailureCount = new AtomicLong();
+	private AtomicLong writeFailureCount = new AtomicLong();
+	private volatile IOException lastFailure;
+
+	/**
+	 * Creates a new <code>AnalysisCache</code> instance.
+	 * @param dir specifies a directory to store files.
+	 * The directory is created if it does not exist.
+	 */
+	public AnalysisCache(File dir) {
+		this.dir = dir;
+	}
+
+	/**
+	 * @return the directory storing files.
+	 */
+	public File getDirectory() {
+		return dir;
+	}
+
+	/**
+	 * @param hash is a hash value of a class file.
+	 * @return a file to store the analysis result of the class.
+	 * Files are distributed to subdirectories named by the first two characters of the hash.
+	 */
+	private File getFile(String hash) {
+		return new File(new File(dir, hash.substring(0, 2)), hash + SUFFIX);
+	}
+
+	/**
+	 * Makes the analysis result of all methods in a class available.
+	 * If the cache has the result, the methods restore it.
+	 * Otherwise, the methods are analyzed and the result is stored in the cache.
+	 * @param c specifies a class.
+	 */
+	void prepare(ClassInfo c) {
+		String hash = c.getHash();
+		if (hash == null || hash.length() < 2) return;
+		synchronized (c) {
+			File f = getFile(hash);
+			if (f.exists()) {
+				try {
+					load(f, c);
+					return;
+				} catch (IOException e) {
+					readFailureCount.incrementAndGet();
+					lastFailure = e;
+				}
+			}
+			// The results are kept here, since a BoundedAnalysisCache may release them during the store
+			MethodInfo.Flow[] flows = new MethodInfo.Flow[c.getMethodCount()];
+			for (int i=0; i<flows.length; ++i) {
+				flows[i] = c.getMethod(i).analyzeFlow();
+			}
+			try {
+				store(f, c, flows);
+			} catch (IOException e) {
+				writeFailureCount.incrementAndGet();
+				lastFailure = e;
+			}
+		}
+	}
+
+	/**
+	 * @return the number of files that could not be read, e.g. broken files.
+	 * The classes of such files have been analyzed without the cache.
+	 */
+	public long getReadFailureCount() {
+		return readFailureCount.get();
+	}
+
+	/**
+	 * @return the number of files that could not be written.
+	 * The analysis results of such classes are available only in memory.
+	 */
+	public long getWriteFailureCount() {
+		return writeFailureCount.get();
+	}
+
+	/**
+	 * @return the exception of the last read or write failure.
+	 * The method returns null if no failure has occurred.
+	 */
+	public IOException getLastFailure() {
+		return lastFailure;
+	}
+
+	/**
+	 * Restores the analysis result of methods from a file.
+	 * The methods are unchanged if the method throws an exception.
+	 * @throws IOException if the file is broken or inconsistent with the class.
+	 */
+	private void load(File f, ClassInfo c) throws IOException {
+		List<MethodRecord> records = new ArrayList<>(c.getMethodCount());
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f)))) {
+			if (in.readInt() != MAGIC ||
+				in.readInt() != FORMAT_VERSION ||
+				!in.readUTF().equals(c.getHash()) ||
+				readInt(in) != c.getMethodCount()) {
+				throw new IOException("Inconsistent analysis cache " + f.getAbsolutePath());
+			}
+			for (MethodInfo m: c.getMethods()) {
+				if (!in.readUTF().equals(m.getMethodName()) ||
+					!in.readUTF().equals(m.getDescriptor())) {
+					throw new IOException("Inconsistent analysis cache " + f.getAbsolutePath());
+				}
+				MethodRecord r = new MethodRecord();
+				int instructionCount = readInt(in);
+				r.normalFlow = readEdges(in);
+				r.conservativeFlow = readEdges(in);
+				r.controlDependence = readEdges(in);
+				if (in.readBoolean()) {
+					r.operandCounts = new int[instructionCount];
+					for (int i=0; i<instructionCount; ++i) {
+						r.operandCounts[i] = readInt(in);
+					}
+					int edgeCount = readInt(in);
+					r.dataFlowEdges = new DataFlowEdgeList(edgeCount);
+					for (int i=0; i<edgeCount; ++i) {
+						int from = readInt(in);
+						int to = readInt(in);
+						int operandIndex = readInt(in);
+						int operandCount = readInt(in);
+						int variableIndex = readInt(in);
+						boolean isLocal = in.readBoolean();
+						r.dataFlowEdges.add(from, to, operandIndex, operandCount, variableIndex, isLocal);
+					}
+				}
+				r.instructionCount = instructionCount;
+				records.add(r);
+			}
+		} catch (EOFException e) {
+			throw new IOException("Truncated analysis cache " + f.getAbsolutePath(), e);
+		}
+		for (int i=0; i<records.size(); ++i) {
+			if (records.get(i).instructionCount != c.getMethod(i).getInstructionCount()) {
+				throw new IOException("Inconsistent analysis cache " + f.getAbsolutePath());
+			}
+		}
+		for (int i=0; i<records.size(); ++i) {
+			MethodRecord r = records.get(i);
+			c.getMethod(i).setFlow(r.normalFlow, r.conservativeFlow, r.controlDependence, r.operandCounts, r.dataFlowEdges);
+		}
+	}
+
+	/**
+	 * Writes the analysis result of methods to a file.
+	 * The file is written to a temporary file and then renamed
+	 * so that other processes never read an incomplete file.
+	 * @param flows specifies the analysis results of the methods in the class.
+	 */
+	private void store(File f, ClassInfo c, MethodInfo.Flow[] flows) throws IOException {
+		File parent = f.getParentFile();
+		if (!parent.isDirectory() && !parent.mkdirs() && !parent.isDirectory()) {
+			throw new IOException("Failed to create a directory " + parent.getAbsolutePath());
+		}
+		File temp = File.createTempFile(c.getHash(), ".tmp", parent);
+		try {
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+				out.writeInt(MAGIC);
+				out.writeInt(FORMAT_VERSION);
+				out.writeUTF(c.getHash());
+				writeInt(out, c.getMethodCount());
+				for (int methodIndex=0; methodIndex<flows.length; ++methodIndex) {
+					MethodInfo m = c.getMethod(methodIndex);
+					MethodInfo.Flow flow = flows[methodIndex];
+					out.writeUTF(m.getMethodName());
+					out.writeUTF(m.getDescriptor());
+					writeInt(out, m.getInstructionCount());
+					writeEdges(out, m.getControlFlow(flow));
+					writeEdges(out, m.getConservativeControlFlow(flow));
+					writeEdges(out, m.getControlDependence(flow));
+					DataDependence dd = flow.getDataDependence();
+					out.writeBoolean(dd != null);
+					if (dd != null) {
+						for (int i=0; i<m.getInstructionCount(); ++i) {
+							writeInt(out, dd.getOperandCount(i));
+						}
+						DataFlowEdgeList edges = dd.getEdgeList();
+						writeInt(out, edges.size());
+						for (int e=0; e<edges.size(); ++e) {
+							writeInt(out, edges.getSourceInstruction(e));
+							writeInt(out, edges.getDestinationInstruction(e));
+							writeInt(out, edges.getDestinationOperandIndex(e));
+							writeInt(out, edges.getDestinationOperandCount(e));
+							writeInt(out, edges.getVariableIndex(e));
+							out.writeBoolean(edges.isLocal(e));
+						}
+					}
+				}
+			}
+			try {
+				Files.move(temp.toPath(), f.toPath(), StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp.toPath(), f.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			if (temp.exists()) {
+				temp.delete();
+			}
+		}
+	}
+
+	private static void writeEdges(final DataOutputStream out, DirectedGraph g) throws IOException {
+		writeInt(out, g.getEdgeCount());
+		final IOException[] error = new IOException[1];
+		g.forEachEdge(new IntPairProc() {
+			@Override
+			public boolean execute(int elem1, int elem2) {
+				try {
+					writeInt(out, elem1);
+					writeInt(out, elem2);
+					return true;
+				} catch (IOException e) {
+					error[0] = e;
+					return false;
+				}
+			}
+		});
+		if (error[0] != null) throw error[0];
+	}
+
+	private static IntPairList readEdges(DataInputStream in) throws IOException {
+		int count = readInt(in);
+		IntPairList edges = new IntPairList(count);
+		for (int i=0; i<count; ++i) {
+			int from = readInt(in);
+			int to = readInt(in);
+			edges.add(from, to);
+		}
+		return edges;
+	}
+
+	/**
+	 * Writes an integer in a variable-length format.
+	 * Small values including -1 occupy a single byte.
+	 */
+	private static void writeInt(DataOutputStream out, int value) throws IOException {
+		int v = (value << 1) ^ (value >> 31);
+		while ((v & ~0x7f) != 0) {
+			out.writeByte((v & 0x7f) | 0x80);
+			v >>>= 7;
+		}
+		out.writeByte(v);
+	}
+
+	private static int readInt(DataInputStream in) throws IOException {
+		int v = 0;
+		for (int shift=0; shift<35; shift+=7) {
+			int b = in.readUnsignedByte();
+			v |= (b & 0x7f) << shift;
+			if ((b & 0x80) == 0) {
+				return (v >>> 1) ^ -(v & 1);
+			}
+		}
+		throw new IOException("Malformed integer");
+	}
+
+	/**
+	 * The analysis result of a method read from a file.
+	 */
+	private static class MethodRecord {
+		private int instructionCount;
+		private IntPairList normalFlow;
+		private IntPairList conservativeFlow;
+		private IntPairList controlDependence;
+		private int[] operandCounts;
+		private DataFlowEdgeList dataFlowEdges;
+	}
+}
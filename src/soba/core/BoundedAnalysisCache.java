@@ -0,0 +1,181 @@
+package soba.core;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class limits the number of methods holding their analysis results in memory.
+ * Methods are kept in an approximate least-recently-used order (the second-chance algorithm);
+ * when the number of methods or the estimated size of their results exceeds a budget,
+ * the results of methods that have not been used recently are released.
+ * An access to a result only sets a flag in the result without a lock,
+ * so that threads analyzing methods do not contend on the cache.
+ * A released result is computed again (or restored from an <code>AnalysisCache</code>)
+ * when it is requested.
+ * The estimated size is approximate; it is intended to keep the heap usage bounded,
+ * not to measure it exactly.
+ * An object can be shared by multiple programs and threads.
+ */
+public class BoundedAnalysisCache {
+
+	private int maxEntries;
+	private long maxBytes;
+	private LinkedHashMap<MethodInfo, Entry> entries; // method -> its result, in the order of insertion
+	private long bytes;
+	private LongAdder hitCount;
+	private long missCount;
+	private long evictionCount;
+
+	/**
+	 * Creates a new <code>BoundedAnalysisCache</code> instance.
+	 * @param maxEntries specifies the maximum number of methods holding their results.
+	 * A value less than 1 disables the limit.
+	 * @param maxBytes specifies the maximum estimated size of the results in bytes.
+	 * A value less than 1 disables the limit.
+	 */
+	public BoundedAnalysisCache(int maxEntries, long maxBytes) {
+		this.maxEntries = maxEntries;
+		this.maxBytes = maxBytes;
+		this.entries = new LinkedHashMap<MethodInfo, Entry>(1024);
+		this.hitCount = new LongAdder();
+	}
+
+	/**
+	 * Records an access to a result held by a method.
+	 * The method does not lock the cache.
+	 */
+	void hit(MethodInfo.Flow f) {
+		hitCount.increment();
+		f.markReferenced();
+	}
+
+	/**
+	 * Records a method whose result has been computed or restored.
+	 * @param size is the estimated size of the result.
+	 */
+	void miss(MethodInfo m, MethodInfo.Flow f, long size) {
+		synchronized (this) {
+			missCount++;
+		}
+		add(m, f, size);
+	}
+
+	/**
+	 * Adds a method holding its result to the cache.
+	 * If the cache already includes the method, its result and size are updated.
+	 * When the cache exceeds the budget, the oldest entry is released 
+	 * unless it has been used since it was added or checked;
+	 * a used entry is moved to the end of the order instead.
+	 * Results are released after the cache is unlocked, so that the cache never waits for a method.
+	 * A result is released only if the method still holds it, 
+	 * since another thread may have computed a new result after the eviction.
+	 * @param f is the result held by the method.
+	 * @param size is the estimated size of the result.
+	 */
+	void add(MethodInfo m, MethodInfo.Flow f, long size) {
+		List<Entry> evicted = null;
+		synchronized (this) {
+			Entry old = entries.put(m, new Entry(m, f, size));
+			bytes += (old != null) ? size - old.size : size;
+			int chances = entries.size();
+			while (isOverBudget() && entries.size() > 1) {
+				Entry e = entries.values().iterator().next();
+				if (e.method == m) {
+					// Keep the latest result
+					entries.remove(m);
+					entries.put(m, e);
+					continue;
+				}
+				entries.remove(e.method);
+				if (e.flow.isReferenced() && chances-- > 0) {
+					e.flow.clearReferenced();
+					entries.put(e.method, e);
+					continue;
+				}
+				if (evicted == null) evicted = new ArrayList<Entry>();
+				evicted.add(e);
+				bytes -= e.size;
+				evictionCount++;
+			}
+		}
+		if (evicted != null) {
+			for (Entry e: evicted) {
+				e.method.releaseFlow(e.flow);
+			}
+		}
+	}
+
+	private boolean isOverBudget() {
+		return (maxEntries > 0 && entries.size() > maxEntries) ||
+			(maxBytes > 0 && bytes > maxBytes);
+	}
+
+	/**
+	 * Releases the results of all the methods in the cache.
+	 * The counters are not reset.
+	 */
+	public void clear() {
+		List<Entry> released;
+		synchronized (this) {
+			released = new ArrayList<Entry>(entries.values());
+			entries.clear();
+			bytes = 0;
+		}
+		for (Entry e: released) {
+			e.method.releaseFlow(e.flow);
+		}
+	}
+
+	/**
+	 * @return the number of methods holding their results.
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * @return the estimated size of the results held by the methods.
+	 */
+	public synchronized long getEstimatedBytes() {
+		return bytes;
+	}
+
+	/**
+	 * @return the number of requests for results held by methods.
+	 */
+	public long getHitCount() {
+		return hitCount.sum();
+	}
+
+	/**
+	 * @return the number of requests that computed or restored results.
+	 */
+	public synchronized long getMissCount() {
+		return missCount;
+	}
+
+	/**
+	 * @return the number of released results.
+	 */
+	public synchronized long getEvictionCount() {
+		return evictionCount;
+	}
+
+	/**
+	 * A result held by a method.
+	 */
+	private static class Entry {
+
+		private MethodInfo method;
+		private MethodInfo.Flow flow;
+		private long size;
+
+		public Entry(MethodInfo method, MethodInfo.Flow flow, long size) {
+			this.method = method;
+			this.flow = flow;
+			this.size = size;
+		}
+	}
+}
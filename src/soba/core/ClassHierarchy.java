@@ -5,15 +5,21 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Queue;
 import java.util.Set;
 import java.util.Stack;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.set.hash.TIntHashSet;
 import soba.core.method.CallSite;
 import soba.core.method.FieldAccess;
+import soba.util.IntPairList;
+import soba.util.ObjectIdMap;
 
 /**
  * This class represents a class hierarchy.
@@ -29,6 +35,16 @@ public class ClassHierarchy implements IDynamicBindingResolver {
 	private Map<String, List<String>> parentInterfaces;  // type -> its interfaces
 	private Map<String, Set<String>> subtypes; // type -> a set of sub types 
 	private Set<String> requestedClasses; // a set of type names that are queried but not found
+	private ObjectIdMap<String> typeIds; // type -> a dense integer ID
+	private TypeIndex index; // an array representation of the maps; null if it is not built yet
+	private ConcurrentHashMap<MemberKey, MethodInfo[]> resolvedCalls; // call -> methods; available after freeze
+	private AtomicReferenceArray<MethodTable> visibleMethods; // type ID -> methods visible in the type; available after freeze
+	private ConcurrentHashMap<MemberKey, Object> resolvedFields; // field access -> FieldInfo or NOT_FOUND; available after freeze
+	private IClassProvider classProvider; // a source of classes that are not registered; may be null
+	private Set<String> providedTypes; // a set of type names whose ancestors have been loaded from the provider
+	private Set<String> invalidatedTypes; // types whose cached results are discarded at the next freeze; null unless unfrozen
+	
+	private static final Object NOT_FOUND = new Object();
 
 	private static List<String> EMPTY = Collections.unmodifiableList(new ArrayList<String>(0)); 
 	
@@ -44,7 +60,68 @@ public class ClassHierarchy implements IDynamicBindingResolver {
 		entries = new HashMap<String, ClassInfo>();
 
 		requestedClasses = new HashSet<String>();
-
+		typeIds = new ObjectIdMap<String>(1024);
+		providedTypes = new HashSet<String>();
+	}
+	
+	/**
+	 * Specifies a source of classes that are requested but not registered.
+	 * Until the hierarchy is frozen, a query for a type loads the type 
+	 * and its ancestors from the provider, and registers them to the hierarchy.
+	 * When the hierarchy is frozen, the ancestors of all the registered types are loaded.
+	 * Sub-types are not loaded from the provider.
+	 * A class that is not available from the provider is recorded in 
+	 * <code>getRequestedClasses()</code>.
+	 * Multiple providers can be combined by <code>ClassProviderChain</code>.
+	 * @param provider specifies a provider.  If null, no classes are loaded.
+	 * @throws FrozenHierarchyException if the hierarchy is frozen.
+	 */
+	public void setClassProvider(IClassProvider provider) {
+		if (frozen) {
+			throw new FrozenHierarchyException();
+		}
+		this.classProvider = provider;
+		this.providedTypes.clear();
+	}
+	
+	/**
+	 * @return the provider of classes.  The return value may be null.
+	 */
+	public IClassProvider getClassProvider() {
+		return classProvider;
+	}
+	
+	/**
+	 * Loads a type and its ancestors from the class provider
+	 * if they are not registered yet.
+	 * The method does nothing after the hierarchy is frozen.
+	 * @param typeName may be null; it is ignored.
+	 */
+	private void loadFromProvider(String typeName) {
+		if (classProvider == null || frozen || typeName == null || providedTypes.contains(typeName)) return;
+		
+		ArrayList<String> worklist = new ArrayList<String>();
+		worklist.add(typeName);
+		while (!worklist.isEmpty()) {
+			String t = worklist.remove(worklist.size() - 1);
+			if (!providedTypes.add(t)) continue;
+			if (isArrayType(t)) {
+				worklist.add(JAVA_LANG_OBJECT);
+				continue;
+			}
+			
+			ClassInfo c = entries.get(t);
+			if (c == null && !parentClass.containsKey(t)) {
+				c = classProvider.getClassInfo(t);
+				if (c == null) continue;
+				registerClass(c);
+				requestedClasses.remove(t);
+			}
+			if (c != null) {
+				if (c.getSuperClass() != null) worklist.add(c.getSuperClass());
+				worklist.addAll(c.getInterfaces());
+			}
+		}
 	}
 	
 	/**
@@ -72,6 +149,23 @@ public class ClassHierarchy implements IDynamicBindingResolver {
 	 * matched to the invocation.
 	 */
 	public MethodInfo[] resolveCall(String className, String methodName, String methodDesc, boolean dynamic) {
+		if (frozen && resolvedCalls != null) {
+			MemberKey key = new MemberKey(className, methodName, methodDesc, dynamic);
+			MethodInfo[] methods = resolvedCalls.get(key);
+			if (methods == null) {
+				methods = resolveCallWithoutCache(className, methodName, methodDesc, dynamic);
+				resolvedCalls.putIfAbsent(key, methods);
+			}
+			return methods.clone();
+		} else {
+			return resolveCallWithoutCache(className, methodName, methodDesc, dynamic);
+		}
+	}
+	
+	/**
+	 * Resolves a method invocation without the cache of resolved calls.
+	 */
+	private MethodInfo[] resolveCallWithoutCache(String className, String methodName, String methodDesc, boolean dynamic) {
 		if (!dynamic) {
 			MethodInfo	m = resolveSpecialCall(className, methodName, methodDesc);
 			return (m == null) ? new MethodInfo[0] : new MethodInfo[] {m};
@@ -80,6 +174,33 @@ public class ClassHierarchy implements IDynamicBindingResolver {
 		}
 	}
 	
+	/**
+	 * Resolves method invocations at once.
+	 * Invocations of the same method are resolved once.
+	 * @see IDynamicBindingResolver#resolveCalls(List, ObjectIdMap, IntPairList)
+	 */
+	@Override
+	public void resolveCalls(List<CallSite> callSites, ObjectIdMap<MethodInfo> methodIds, IntPairList result) {
+		HashMap<MemberKey, int[]> resolved = new HashMap<>();
+		for (int i=0; i<callSites.size(); ++i) {
+			CallSite cs = callSites.get(i);
+			boolean dynamic = !cs.isStaticOrSpecial();
+			MemberKey key = new MemberKey(cs.getClassName(), cs.getMethodName(), cs.getDescriptor(), dynamic);
+			int[] ids = resolved.get(key);
+			if (ids == null) {
+				MethodInfo[] methods = resolveCall(cs.getClassName(), cs.getMethodName(), cs.getDescriptor(), dynamic);
+				ids = new int[methods.length];
+				for (int j=0; j<methods.length; ++j) {
+					ids[j] = methodIds.getId(methods[j]);
+				}
+				resolved.put(key, ids);
+			}
+			for (int id: ids) {
+				result.add(i, id);
+			}
+		}
+	}
+	
 	/**
 	 * Resolve dynamic binding of a virtual method call.
 	 * Please note that this method does not care about the detail of the method definition.
@@ -105,19 +226,23 @@ public class ClassHierarchy implements IDynamicBindingResolver {
 		// We explicitly avoid array types, because arrays are not included in ClassHierarchy.
 		if (!isArrayType(targetTypeName)) {
 			// Find all implementation of the same method signature in subclasses.
-			Set<String> checkedClasses = new HashSet<String>();
-			Stack<String> classes = new Stack<String>();
-			classes.add(targetTypeName);
-			while (!classes.empty()) { 
-				String currentClass = classes.pop();
+			TypeIndex idx = getIndex();
+			int targetType = idx.getId(targetTypeName);
+			if (targetType < 0) {
+				recordRequest(targetTypeName);
+			}
+			TIntHashSet checkedClasses = new TIntHashSet();
+			TIntArrayList classes = new TIntArrayList();
+			if (targetType >= 0) classes.add(targetType);
+			while (!classes.isEmpty()) { 
+				int currentClass = classes.removeAt(classes.size() - 1);
 	
 				// skip the visited classes
-				if (checkedClasses.contains(currentClass)) {
+				if (!checkedClasses.add(currentClass)) {
 					continue;
 				}
-				checkedClasses.add(currentClass);
 				
-				ClassInfo currentClassInfo = getClassInfo(currentClass);
+				ClassInfo currentClassInfo = idx.getClassInfo(currentClass);
 				if (currentClassInfo != null) {
 					MethodInfo m = currentClassInfo.findMethod(methodName, methodDesc);
 					if (m != null) {
@@ -129,20 +254,25 @@ public class ClassHierarchy implements IDynamicBindingResolver {
 					
 					if ((m == null) || m.isOverridable()) { 
 						// the method may be overridden by subclasses.
-						for (String c: getSubtypes(currentClass)) {
+						for (int i=idx.getSubtypeStart(currentClass); i<idx.getSubtypeEnd(currentClass); ++i) {
+							int c = idx.getSubtype(i);
 							if (m != null && m.isPackagePrivate()) {
 								// A package-private method can be overridden by only classes in the same package.
-								if (isSamePackage(c, currentClass)) {
-									classes.push(c);
+								ClassInfo subtype = idx.getClassInfo(c);
+								if (subtype == null) {
+									recordRequest(idx.getName(c));
+								} else if (subtype.getPackageName().equals(currentClassInfo.getPackageName())) {
+									classes.add(c);
 								}
 							} else {
 								// Other methods can be overridden by sub-types.
-								classes.push(c);
+								classes.add(c);
 							}
 						}
 					}
 				} else {
 					// Skip a class that is not included in the class hierarchy.
+					recordRequest(idx.getName(currentClass));
 				}
 			}
 			
@@ -184,6 +314,14 @@ public class ClassHierarchy implements IDynamicBindingResolver {
 	 * @throws NoSuchMethodException is thrown if method is not found in ancestor classes and interfaces.
 	 */
 	private MethodInfo findDeclaration(String className, String methodName, String methodDesc) {
+		loadFromProvider(className);
+		if (frozen && visibleMethods != null && !isArrayType(className)) {
+			int typeId = getIndex().getId(className);
+			if (typeId >= 0) {
+				return getVisibleMethods(typeId).find(methodName, methodDesc);
+			}
+		}
+		
 		// Find the nearest ancestor class implements the method
 		String currentClass = className;
 		while (currentClass != null) {
@@ -237,45 +375,152 @@ public class ClassHierarchy implements IDynamicBindingResolver {
 		return null;
 	}
 	
+	/**
+	 * @param typeId specifies a type.
+	 * @return a table of methods that are visible in the type.
+	 * The table is created when it is requested for the first time.
+	 */
+	private MethodTable getVisibleMethods(int typeId) {
+		MethodTable table = visibleMethods.get(typeId);
+		if (table == null) {
+			table = createVisibleMethods(typeId);
+			if (!visibleMethods.compareAndSet(typeId, null, table)) {
+				table = visibleMethods.get(typeId);
+			}
+		}
+		return table;
+	}
+	
+	/**
+	 * Creates a table mapping each method signature to its declaration.
+	 * The table includes exactly the declarations found by the traversal of findDeclaration.
+	 * @param typeId specifies a type.
+	 */
+	private MethodTable createVisibleMethods(int typeId) {
+		TypeIndex idx = getIndex();
+		MethodTable table = new MethodTable(16);
+		
+		// Methods declared in the class and its ancestor classes 
+		for (int current = typeId; current >= 0; current = idx.getSuperClass(current)) {
+			ClassInfo c = idx.getClassInfo(current);
+			if (c == null) {
+				// Other methods are not resolved if a class is not included in the class hierarchy.
+				recordRequest(idx.getName(current));
+				return table;
+			}
+			table.addAll(c.getMethods());
+			if (!idx.hasSuperClass(current)) {
+				recordRequest(idx.getName(current));
+			}
+		}
+		
+		// Methods declared in interfaces, in the breadth-first order
+		TIntArrayList worklist = new TIntArrayList();
+		for (int current = typeId; current >= 0; current = idx.getSuperClass(current)) {
+			for (int i=idx.getInterfaceStart(current); i<idx.getInterfaceEnd(current); ++i) {
+				worklist.add(idx.getInterface(i));
+			}
+		}
+		TIntHashSet visited = new TIntHashSet();
+		for (int pos=0; pos<worklist.size(); ++pos) {
+			int interfaceId = worklist.get(pos);
+			if (!visited.add(interfaceId)) continue;
+			
+			ClassInfo c = idx.getClassInfo(interfaceId);
+			if (c != null) {
+				table.addAll(c.getMethods());
+				for (int i=idx.getInterfaceStart(interfaceId); i<idx.getInterfaceEnd(interfaceId); ++i) {
+					worklist.add(idx.getInterface(i));
+				}
+			} else {
+				String interfaceName = idx.getName(interfaceId);
+				if (isArrayType(interfaceName)) { 
+					// ignore array types
+					continue;
+				}
+				// Other methods are not resolved if an interface is not included in the class hierarchy.
+				recordRequest(interfaceName);
+				break;
+			}
+		}
+		return table;
+	}
+	
 	/**
 	 * Finds a accessed <code>FieldInfo</code> object.
 	 * @param access specifies a field access instruction.
 	 * @return a <code>FieldInfo</code> object.
+	 * The return value is null if the field is not found.
 	 */
 	public FieldInfo resolveField(FieldAccess access) {
-		String owner = resolveFieldOwner(access);
-		return getClassInfo(owner).findField(access.getFieldName(), access.getDescriptor());
+		if (access.isStatic()) {
+			return resolveStaticField(access.getClassName(), access.getFieldName(), access.getDescriptor());
+		} else {
+			return resolveInstanceField(access.getClassName(), access.getFieldName(), access.getDescriptor());
+		}
 	}
-
+	
 	/**
-	 * Finds a class which has a field to be accessed. 
-	 * @param access specifies a field access instruction.
-	 * @return the name of a class which has a specified field.
+	 * Finds an instance field to be accessed.
+	 * After the hierarchy is frozen, the result is cached. 
+	 * @param className specifies a class name in a field access instruction.
+	 * The class may inherit a field from its parent.
+	 * @param fieldName 
+	 * @param fieldDesc
+	 * @return a <code>FieldInfo</code> object.
+	 * The method may return null if the field is not found.
 	 */
-	private String resolveFieldOwner(FieldAccess access) {
-		if (access.isStatic()) {
-			return resolveStaticFieldOwner(access.getClassName(), access.getFieldName(), access.getDescriptor());
+	public FieldInfo resolveInstanceField(String className, String fieldName, String fieldDesc) {
+		if (frozen && resolvedFields != null && className != null) {
+			MemberKey key = new MemberKey(className, fieldName, fieldDesc, false);
+			Object f = resolvedFields.get(key);
+			if (f == null) {
+				f = findInstanceField(className, fieldName, fieldDesc);
+				if (f == null) f = NOT_FOUND;
+				resolvedFields.putIfAbsent(key, f);
+			}
+			return (f != NOT_FOUND) ? (FieldInfo)f : null;
 		} else {
-			return resolveInstanceFieldOwner(access.getClassName(), access.getFieldName(), access.getDescriptor());
+			return findInstanceField(className, fieldName, fieldDesc);
 		}
 	}
 
 	/**
-	 * Finds a class which has an instance field to be accessed. 
+	 * Finds a static field to be accessed.
+	 * After the hierarchy is frozen, the result is cached. 
 	 * @param className specifies a class name in a field access instruction.
-	 * The class may inherit a field from its parent.
 	 * @param fieldName 
 	 * @param fieldDesc
-	 * @return a class name that defines the field specified by the arguments.
-	 * The method may return null if an owner is not found.
+	 * @return a <code>FieldInfo</code> object.
+	 * The method may return null if the field is not found.
+	 * @see JVM Specification Section 5.4.3.2.
 	 */
-	public String resolveInstanceFieldOwner(String className, String fieldName, String fieldDesc) {
-    	String current = className;
+	public FieldInfo resolveStaticField(String className, String fieldName, String fieldDesc) {
+		if (frozen && resolvedFields != null && className != null) {
+			MemberKey key = new MemberKey(className, fieldName, fieldDesc, true);
+			Object f = resolvedFields.get(key);
+			if (f == null) {
+				f = findStaticField(className, fieldName, fieldDesc);
+				if (f == null) f = NOT_FOUND;
+				resolvedFields.putIfAbsent(key, f);
+			}
+			return (f != NOT_FOUND) ? (FieldInfo)f : null;
+		} else {
+			return findStaticField(className, fieldName, fieldDesc);
+		}
+	}
+	
+	/**
+	 * Finds an instance field declared in a class or its ancestor classes.
+	 */
+	private FieldInfo findInstanceField(String className, String fieldName, String fieldDesc) {
+		String current = className;
 		while (current != null) {
 			ClassInfo c = getClassInfo(current);
 			if (c != null) {
-				if (c.findField(fieldName, fieldDesc) != null) {
-					return current;
+				FieldInfo f = c.findField(fieldName, fieldDesc);
+				if (f != null) {
+					return f;
 				} else {
 					current = c.getSuperClass();
 				}
@@ -287,6 +532,66 @@ public class ClassHierarchy implements IDynamicBindingResolver {
 		return null;
 	}
 	
+	/**
+	 * Finds a static field declared in a class, its interfaces or its ancestors.
+	 * For each class from the specified class to its ancestors,
+	 * the class and then its super-interfaces (in the depth-first order) are searched.
+	 * An interface that is already searched is not searched again.
+	 */
+	private FieldInfo findStaticField(String className, String fieldName, String fieldDesc) {
+		Set<String> visited = null;
+		String current = className;
+		while (current != null) {
+			ClassInfo c = getClassInfo(current);
+			if (c == null) return null;
+			
+			FieldInfo f = c.findField(fieldName, fieldDesc);
+			if (f != null) return f;
+			
+			// If not defined, search interfaces
+			List<String> interfaces = c.getInterfaces();
+			if (interfaces != null && !interfaces.isEmpty()) {
+				if (visited == null) visited = new HashSet<String>();
+				Stack<String> worklist = new Stack<String>();
+				worklist.addAll(interfaces);
+				while (!worklist.isEmpty()) {
+					String interfaceName = worklist.pop();
+					if (!visited.add(interfaceName)) continue;
+					
+					ClassInfo i = getClassInfo(interfaceName);
+					if (i != null) {
+						f = i.findField(fieldName, fieldDesc);
+						if (f != null) {
+							return f;
+						} else if (i.getInterfaces() != null) {
+							worklist.addAll(i.getInterfaces());
+						}
+					} else {
+						// If c is not a registered class, ignore it. 
+					}
+				}
+			}
+			
+			// Search a super class
+			current = c.getSuperClass();
+		}
+		return null;
+	}
+
+	/**
+	 * Finds a class which has an instance field to be accessed. 
+	 * @param className specifies a class name in a field access instruction.
+	 * The class may inherit a field from its parent.
+	 * @param fieldName 
+	 * @param fieldDesc
+	 * @return a class name that defines the field specified by the arguments.
+	 * The method may return null if an owner is not found.
+	 */
+	public String resolveInstanceFieldOwner(String className, String fieldName, String fieldDesc) {
+		FieldInfo f = resolveInstanceField(className, fieldName, fieldDesc);
+		return (f != null) ? f.getClassName() : null;
+	}
+	
 	/**
 	 * Finds a class which has a static field to be accessed. 
 	 * @param className 
@@ -298,47 +603,206 @@ public class ClassHierarchy implements IDynamicBindingResolver {
 	 * javac reports the ambiguous field reference as an error.
 	 */
 	public String resolveStaticFieldOwner(String className, String fieldName, String fieldDesc) {
-		// Search the current class
-		ClassInfo c = getClassInfo(className);
-		if (c == null) return null;
-		
-		if (c != null) {
-			if (c.findField(fieldName, fieldDesc) != null) {
-				return className;
+		FieldInfo f = resolveStaticField(className, fieldName, fieldDesc);
+		return (f != null) ? f.getClassName() : null;
+	}
+	
+	/**
+	 * Prevents further modifications to the object.
+	 * After the call, results of <code>resolveCall</code> are cached 
+	 * so that multiple call sites of the same method are resolved once.
+	 * Method declarations are also looked up in a table of the methods 
+	 * visible in each type, instead of walking up the hierarchy.
+	 * A frozen object can be queried by multiple threads.
+	 * If a class provider is specified, the ancestors of the registered classes
+	 * are loaded from the provider before the object is frozen.
+	 * The method does nothing if the object is already frozen.
+	 * If the object has been frozen and unfrozen, cached results are reused
+	 * except for the types affected by the modifications.
+	 * @see ProgramOptions#setFrozenHierarchy(boolean)
+	 */
+	public void freeze() {
+		if (frozen) return;
+		if (classProvider != null) {
+			List<String> typeNames = new ArrayList<String>(entries.keySet());
+			typeNames.addAll(requestedClasses);
+			for (String typeName: typeNames) {
+				loadFromProvider(typeName);
 			}
 		}
-
-		// If not defined, search interface
-		Stack<String> worklist = new Stack<String>();
-		worklist.push(className);
-		while (!worklist.isEmpty()) {
-			String current = worklist.pop();
-			c = getClassInfo(current);
-			if (c != null) {
-				if (c.findField(fieldName, fieldDesc) != null) {
-					return current;
-				} else {
-					if (c.getInterfaces() != null) {
-						worklist.addAll(c.getInterfaces());
-					}
+		frozen = true;
+		Set<String> requested = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+		requested.addAll(requestedClasses);
+		requestedClasses = requested;
+		typeIds.freeze();
+		getIndex();
+		if (invalidatedTypes == null) {
+			resolvedCalls = new ConcurrentHashMap<MemberKey, MethodInfo[]>(4096);
+			visibleMethods = new AtomicReferenceArray<MethodTable>(getIndex().getTypeCount());
+			resolvedFields = new ConcurrentHashMap<MemberKey, Object>(4096);
+		} else {
+			for (Iterator<MemberKey> it = resolvedCalls.keySet().iterator(); it.hasNext(); ) {
+				if (isInvalidated(it.next().owner)) it.remove();
+			}
+			for (Iterator<MemberKey> it = resolvedFields.keySet().iterator(); it.hasNext(); ) {
+				if (isInvalidated(it.next().owner)) it.remove();
+			}
+			// New types may have been added
+			AtomicReferenceArray<MethodTable> tables = new AtomicReferenceArray<MethodTable>(getIndex().getTypeCount());
+			for (int t=0; t<visibleMethods.length(); ++t) {
+				MethodTable table = visibleMethods.get(t);
+				if (table != null && !isInvalidated(getIndex().getName(t))) {
+					tables.set(t, table);
 				}
-			} else {
-				// If c is not a registered class, ignore it. 
 			}
+			visibleMethods = tables;
+			invalidatedTypes = null;
 		}
-		
-		// Recursively search a super class
-    	c = getClassInfo(className);
-    	if (c.getSuperClass() != null) return resolveStaticFieldOwner(c.getSuperClass(), fieldName, fieldDesc);
-    	else return null;
 	}
 	
 	/**
-	 * Prevents further modifications to the object.
+	 * Allows modifications to a frozen object.
+	 * Cached results are not used until the object is frozen again.
+	 * The object records types affected by the modifications:
+	 * a modified type, its ancestors, and its sub-types inheriting its members. 
+	 * When the object is frozen again, cached results only for the affected types are discarded.
+	 * The method does nothing if the object is not frozen.
+	 * The object must not be queried by other threads during the modifications.
 	 */
-	public void freeze() {
-		assert !frozen: "ClassHierarchy is already frozen."; 
-		frozen = true;
+	public void unfreeze() {
+		if (!frozen) return;
+		frozen = false;
+		typeIds.unfreeze();
+		requestedClasses = new HashSet<String>(requestedClasses);
+		invalidatedTypes = new HashSet<String>();
+	}
+	
+	/**
+	 * Records types whose cached results may be changed by a modification of a type,
+	 * i.e. the type and its ancestors (whose sub-types are changed).
+	 * The method does nothing unless the object has been unfrozen. 
+	 * @param typeName specifies a modified type.  It may be null.
+	 * @param descendants is true if the members of the type are changed.
+	 * The sub-types of the type are also recorded, since they inherit the members.
+	 */
+	private void invalidate(String typeName, boolean descendants) {
+		if (invalidatedTypes == null || typeName == null) return;
+		ArrayList<String> worklist = new ArrayList<String>();
+		Set<String> visited = new HashSet<String>();
+		worklist.add(typeName);
+		while (!worklist.isEmpty()) {
+			String t = worklist.remove(worklist.size() - 1);
+			if (!visited.add(t)) continue;
+			invalidatedTypes.add(t);
+			String parent = parentClass.get(t);
+			if (parent != null) worklist.add(parent);
+			List<String> interfaces = parentInterfaces.get(t);
+			if (interfaces != null) worklist.addAll(interfaces);
+		}
+		if (descendants) {
+			visited.clear();
+			worklist.add(typeName);
+			while (!worklist.isEmpty()) {
+				String t = worklist.remove(worklist.size() - 1);
+				if (!visited.add(t)) continue;
+				invalidatedTypes.add(t);
+				Set<String> children = subtypes.get(t);
+				if (children != null) worklist.addAll(children);
+			}
+		}
+	}
+	
+	/**
+	 * @return true if cached results for the type must be discarded.
+	 * Array types depend on "java/lang/Object".
+	 */
+	private boolean isInvalidated(String typeName) {
+		return invalidatedTypes.contains(typeName) || 
+			(isArrayType(typeName) && invalidatedTypes.contains(JAVA_LANG_OBJECT));
+	}
+	
+	/**
+	 * @return an array representation of the hierarchy.
+	 * The representation is built when it is requested for the first time 
+	 * after the hierarchy is modified.
+	 */
+	private TypeIndex getIndex() {
+		if (index == null) {
+			index = new TypeIndex(typeIds, entries, parentClass, parentInterfaces, subtypes);
+		}
+		return index;
+	}
+	
+	/**
+	 * Assigns an ID to a type name.
+	 * @param typeName may be null.
+	 */
+	private void intern(String typeName) {
+		if (typeName != null) {
+			typeIds.add(typeName);
+		}
+	}
+	
+	/**
+	 * Each type name appeared in the hierarchy has a dense integer ID.
+	 * An ID is not changed by further modifications of the hierarchy. 
+	 * @param typeName specifies a type.
+	 * @return the ID of the type.
+	 * The return value is -1 if the type does not appear in the hierarchy.
+	 */
+	public int getTypeId(String typeName) {
+		return getIndex().getId(typeName);
+	}
+	
+	/**
+	 * @param typeId specifies a type.
+	 * @return the type name for the ID.
+	 */
+	public String getTypeName(int typeId) {
+		return getIndex().getName(typeId);
+	}
+	
+	/**
+	 * @return the number of type IDs.
+	 * IDs are numbered from 0 to getTypeCount()-1.
+	 * The number includes types that are referred by registered classes but not registered.
+	 */
+	public int getTypeCount() {
+		return getIndex().getTypeCount();
+	}
+	
+	/**
+	 * @param typeId specifies a type.
+	 * @return a <code>ClassInfo</code> object of the type.
+	 * The return value is null if the class is not registered.
+	 */
+	public ClassInfo getClassInfo(int typeId) {
+		return getIndex().getClassInfo(typeId);
+	}
+	
+	/**
+	 * @param typeId specifies a type.
+	 * @return the ID of the super class.
+	 * The return value is -1 for "java/lang/Object" and unregistered classes.
+	 */
+	public int getSuperClassId(int typeId) {
+		return getIndex().getSuperClass(typeId);
+	}
+	
+	/**
+	 * @param typeId specifies a type.
+	 * @return the IDs of interfaces implemented by the type.
+	 */
+	public int[] getSuperInterfaceIds(int typeId) {
+		return getIndex().getInterfaces(typeId);
+	}
+	
+	/**
+	 * @param typeId specifies a type.
+	 * @return the IDs of classes which extend/implement the type.
+	 */
+	public int[] getSubtypeIds(int typeId) {
+		return getIndex().getSubtypes(typeId);
 	}
 	
 	/**
@@ -351,19 +815,34 @@ public class ClassHierarchy implements IDynamicBindingResolver {
 	/**
 	 * @return a set of class names which are requested 
 	 * by client methods, but not involved in this class hierarchy.
+	 * After the hierarchy is frozen, the set is a concurrent set 
+	 * that may be updated by other threads querying the hierarchy.
 	 */
 	public Set<String> getRequestedClasses() {
 		return requestedClasses;
 	}
 	
+	/**
+	 * Records a class name that is requested but not found.
+	 * The set is not modified if it already has the name,
+	 * so that repeated queries for a missing class only read the set.
+	 * @param className may be null; it is ignored.
+	 */
+	private void recordRequest(String className) {
+		if (className != null && !requestedClasses.contains(className)) {
+			requestedClasses.add(className);
+		}
+	}
+	
 	/**
 	 * @param className 
 	 * @return a <code>ClassInfo</code> object specified by the class name.
 	 */
 	public ClassInfo getClassInfo(String className) {
+		loadFromProvider(className);
 		ClassInfo c = entries.get(className);
 		if (c == null) {
-			requestedClasses.add(className);			
+			recordRequest(className);			
 		}
 		return c;
 	}
@@ -390,11 +869,13 @@ public class ClassHierarchy implements IDynamicBindingResolver {
 	 * @return true if the specified types belong to the same package.
 	 */
 	public boolean isSamePackage(String typeName1, String typeName2) {
+		loadFromProvider(typeName1);
+		loadFromProvider(typeName2);
 		ClassInfo c1 = entries.get(typeName1);
 		ClassInfo c2 = entries.get(typeName2);
 		
-		if (c1 == null) requestedClasses.add(typeName1);
-		if (c2 == null) requestedClasses.add(typeName2);
+		if (c1 == null) recordRequest(typeName1);
+		if (c2 == null) recordRequest(typeName2);
 		
 		return (c1 != null)&&(c2 != null)&&(c1.getPackageName().equals(c2.getPackageName()));
 	}
@@ -408,8 +889,9 @@ public class ClassHierarchy implements IDynamicBindingResolver {
 	public String getSuperClass(String className) { 
 		if (isArrayType(className)) return JAVA_LANG_OBJECT;
 		else {
+			loadFromProvider(className);
 			if (!parentClass.containsKey(className)) {
-				requestedClasses.add(className);
+				recordRequest(className);
 			}
 			return parentClass.get(className);
 		}
@@ -426,10 +908,11 @@ public class ClassHierarchy implements IDynamicBindingResolver {
 	 */
 	public Collection<String> getSuperInterfaces(String className) {
 		if (isArrayType(className)) return EMPTY;
-		else if (parentInterfaces.containsKey(className)) { 
+		loadFromProvider(className);
+		if (parentInterfaces.containsKey(className)) { 
 			return parentInterfaces.get(className);
 		} else {
-			if (!entries.containsKey(className)) requestedClasses.add(className);
+			if (!entries.containsKey(className)) recordRequest(className);
 			return EMPTY;
 		}
 	}
@@ -439,26 +922,58 @@ public class ClassHierarchy implements IDynamicBindingResolver {
 	 * @param className specifies a fully qualified class name. 
 	 */
 	public Collection<String> listAllSuperTypes(String className) {
-		if (!entries.containsKey(className)) requestedClasses.add(className);
+		loadFromProvider(className);
+		if (!entries.containsKey(className)) recordRequest(className);
 
-		Set<String> classes = new HashSet<String>();
-		Queue<String> worklist = new LinkedList<String>();
-		worklist.add(className);
-		while (!worklist.isEmpty()) {
-			String name = worklist.poll();
-			String superClass = getSuperClass(name);
-			if (superClass != null && !classes.contains(superClass)) {
-				classes.add(superClass);
-				worklist.add(superClass);
-			}
-			for (String s: getSuperInterfaces(name)) {
-				if (s != null && !classes.contains(s)) {
-					classes.add(s);
-					worklist.add(s);
+		TypeIndex idx = getIndex();
+		TIntHashSet classes = new TIntHashSet();
+		TIntArrayList worklist = new TIntArrayList();
+		Set<String> result = new HashSet<String>();
+		if (isArrayType(className)) {
+			// An array type is a sub-type of java.lang.Object.
+			result.add(JAVA_LANG_OBJECT);
+			int objectId = idx.getId(JAVA_LANG_OBJECT);
+			if (objectId >= 0) {
+				classes.add(objectId);
+				worklist.add(objectId);
+			} else {
+				recordRequest(JAVA_LANG_OBJECT);
+			}
+		} else {
+			int id = idx.getId(className);
+			if (id >= 0) {
+				worklist.add(id);
+			}
+		}
+		
+		for (int pos=0; pos<worklist.size(); ++pos) {
+			int t = worklist.get(pos);
+			if (idx.hasSuperClass(t)) {
+				int superClass = idx.getSuperClass(t);
+				if (superClass >= 0 && classes.add(superClass)) {
+					worklist.add(superClass);
 				}
+			} else {
+				recordRequest(idx.getName(t));
+			}
+			if (idx.hasInterfaces(t)) {
+				for (int i=idx.getInterfaceStart(t); i<idx.getInterfaceEnd(t); ++i) {
+					int s = idx.getInterface(i);
+					if (classes.add(s)) {
+						worklist.add(s);
+					}
+				}
+			} else if (idx.getClassInfo(t) == null) {
+				recordRequest(idx.getName(t));
+			}
+		}
+		for (int i=0; i<worklist.size(); ++i) {
+			int t = worklist.get(i);
+			if (classes.contains(t)) {
+				result.add(idx.getName(t));
 			}
 		}
-		return classes;
+		return result;
 	}
 	
 	/**
@@ -469,13 +984,42 @@ public class ClassHierarchy implements IDynamicBindingResolver {
 		return typeName.endsWith("[]");
 	}
 
+	/**
+	 * Tests a sub-type relationship without creating a set of sub-types.
+	 * @param typeName specifies a type.
+	 * @param superTypeName specifies another type.
+	 * @return true if typeName is the same as superTypeName 
+	 * or it extends/implements superTypeName directly or transitively.
+	 * In other words, the method returns true if and only if 
+	 * <code>getAllSubtypes</code> for superTypeName includes typeName.
+	 */
+	public boolean isSubtypeOf(String typeName, String superTypeName) {
+		if (typeName == null ? superTypeName == null : typeName.equals(superTypeName)) return true;
+		loadFromProvider(typeName);
+		TypeIndex idx = getIndex();
+		int typeId = idx.getId(typeName);
+		int superTypeId = idx.getId(superTypeName);
+		return typeId >= 0 && superTypeId >= 0 && idx.getSubtypeIndex().isSubtypeOf(typeId, superTypeId);
+	}
+	
+	/**
+	 * Tests a sub-type relationship without creating a set of sub-types.
+	 * @param typeId specifies a type.
+	 * @param superTypeId specifies another type.
+	 * @return true if typeId is the same as superTypeId 
+	 * or it extends/implements superTypeId directly or transitively.
+	 */
+	public boolean isSubtypeOf(int typeId, int superTypeId) {
+		return getIndex().getSubtypeIndex().isSubtypeOf(typeId, superTypeId);
+	}
+	
 	/**
 	 * @return a collection of classes which extend/implement 
 	 * the specified type.
 	 * The result may be an empty collection.
 	 */
 	public Collection<String> getSubtypes(String typeName) {
-		if (!entries.containsKey(typeName)) requestedClasses.add(typeName);
+		if (!entries.containsKey(typeName)) recordRequest(typeName);
 
 		if (subtypes.containsKey(typeName)) { 
 			return subtypes.get(typeName);
@@ -489,20 +1033,32 @@ public class ClassHierarchy implements IDynamicBindingResolver {
 	 * @return a collection of all the sub-types for the specified types.
 	 */
 	public Collection<String> getAllSubtypes(Iterable<String> typeNames) {
-		Stack<String> worklist = new Stack<String>();
+		TypeIndex idx = getIndex();
+		HashSet<String> result = new HashSet<String>();
+		TIntArrayList worklist = new TIntArrayList();
 		for (String t: typeNames) {
-			worklist.push(t);
+			int id = idx.getId(t);
+			if (id >= 0) {
+				worklist.add(id);
+			} else {
+				// A type that is not included in the hierarchy has no sub-types
+				result.add(t);
+				recordRequest(t);
+			}
 		}
 		
-		HashSet<String> visited = new HashSet<String>();
+		TIntHashSet visited = new TIntHashSet();
 		while (!worklist.isEmpty()) {
-			String t = worklist.pop();
-			if (visited.contains(t)) continue;
+			int t = worklist.removeAt(worklist.size() - 1);
+			if (!visited.add(t)) continue;
 			
-			visited.add(t);
-			worklist.addAll(getSubtypes(t));
+			if (idx.getClassInfo(t) == null) recordRequest(idx.getName(t));
+			result.add(idx.getName(t));
+			for (int i=idx.getSubtypeStart(t); i<idx.getSubtypeEnd(t); ++i) {
+				worklist.add(idx.getSubtype(i));
+			}
 		}
-		return visited;
+		return result;
 	}
 
 	/**
@@ -514,6 +1070,8 @@ public class ClassHierarchy implements IDynamicBindingResolver {
 		if (frozen) {
 			throw new FrozenHierarchyException();
 		}
+		intern(c.getClassName());
+		invalidate(c.getClassName(), true);
 		entries.put(c.getClassName(), c);
 		registerSuperClass(c.getClassName(), c.getSuperClass());
 		registerSubtype(c.getClassName(), c.getSuperClass());
@@ -523,6 +1081,51 @@ public class ClassHierarchy implements IDynamicBindingResolver {
 		}
 	}
 	
+	/**
+	 * This method removes a class info object from the hierarchy.
+	 * The class is also removed from the sub-types of its super class and interfaces.
+	 * Sub-types of the removed class are kept as they are, 
+	 * in the same way as sub-types of a class that is not registered. 
+	 * @param className specifies a class to be removed.
+	 * @return the removed <code>ClassInfo</code> object.
+	 * The return value is null if the class is not registered.
+	 */
+	public ClassInfo unregisterClass(String className) {
+		if (frozen) {
+			throw new FrozenHierarchyException();
+		}
+		invalidate(className, true);
+		ClassInfo c = entries.remove(className);
+		if (c != null) {
+			index = null;
+			providedTypes.clear();
+			String superClass = parentClass.remove(className);
+			unregisterSubtype(className, superClass);
+			List<String> interfaces = parentInterfaces.remove(className);
+			if (interfaces != null) {
+				for (String interfaceName: interfaces) {
+					unregisterSubtype(className, interfaceName);
+				}
+			}
+		}
+		return c;
+	}
+	
+	/**
+	 * Removes a sub-type relationship.
+	 * @param typeName
+	 * @param parentTypeName
+	 */
+	private void unregisterSubtype(String typeName, String parentTypeName) {
+		Set<String> types = subtypes.get(parentTypeName);
+		if (types != null) {
+			types.remove(typeName);
+			if (types.isEmpty()) {
+				subtypes.remove(parentTypeName);
+			}
+		}
+	}
+	
 	/**
 	 * This method allows developers to manually modify the class hierarchy.
 	 * @param current specifies a class name. 
@@ -532,8 +1135,12 @@ public class ClassHierarchy implements IDynamicBindingResolver {
 		if (frozen) {
 			throw new FrozenHierarchyException();
 		}
+		intern(current);
+		intern(parent);
+		invalidate(current, true);
 		parentClass.put(current, parent);
-		
+		invalidate(current, true);
+		index = null;
 	}
 
 	/**
@@ -547,6 +1154,10 @@ public class ClassHierarchy implements IDynamicBindingResolver {
 		if (frozen) {
 			throw new FrozenHierarchyException();
 		}
+		intern(typeName);
+		intern(parentTypeName);
+		invalidate(parentTypeName, false);
+		index = null;
 		if (subtypes.containsKey(parentTypeName)) {
 			subtypes.get(parentTypeName).add(typeName);
 		} else {
@@ -565,7 +1176,52 @@ public class ClassHierarchy implements IDynamicBindingResolver {
 		if (frozen) {
 			throw new FrozenHierarchyException();
 		}
+		intern(current);
+		if (interfaces != null) {
+			for (String interfaceName: interfaces) {
+				intern(interfaceName);
+			}
+		}
+		invalidate(current, true);
 		parentInterfaces.put(current, interfaces);
+		invalidate(current, true);
+		index = null;
+	}
+	
+	/**
+	 * A key to identify a member reference.
+	 * A flag distinguishes dynamic/static calls and static/instance field accesses.
+	 */
+	private static class MemberKey {
+		
+		private String owner;
+		private String name;
+		private String desc;
+		private boolean dynamic;
+		private int hash;
+		
+		public MemberKey(String owner, String name, String desc, boolean dynamic) {
+			this.owner = owner;
+			this.name = name;
+			this.desc = desc;
+			this.dynamic = dynamic;
+			this.hash = ((owner.hashCode() * 31 + name.hashCode()) * 31 + desc.hashCode()) * 2 + (dynamic ? 1 : 0);
+		}
+		
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if (obj instanceof MemberKey) {
+				MemberKey another = (MemberKey)obj;
+				return hash == another.hash && dynamic == another.dynamic &&
+						owner.equals(another.owner) && name.equals(another.name) && desc.equals(another.desc);
+			}
+			return false;
+		}
 	}
 	
 	public class FrozenHierarchyException extends RuntimeException {
@@ -4,9 +4,12 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 
 import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.commons.JSRInlinerAdapter;
@@ -33,10 +36,46 @@ public class ClassInfo {
 	private String label;
 	private List<MethodInfo> methods = new ArrayList<>();
 	private List<FieldInfo> fields = new ArrayList<>();
+	private MethodTable methodTable; // an index of methods
+	private HashMap<String, FieldInfo> fieldTable; // field name -> the first field having the name
 	
 	private String superclassName;
 	private List<String> interfaceNames;
 	
+	private ParseProfile profile;
+	private ClassReader bytecode; // a reader shared by methods parsing their bodies
+	private AnalysisCache analysisCache;
+	private BoundedAnalysisCache boundedAnalysisCache;
+	
+	/**
+	 * Specifies information parsed when a <code>ClassInfo</code> object is created.
+	 */
+	public enum ParseProfile {
+		/**
+		 * Parses the whole class including method bodies.
+		 */
+		FULL,
+		/**
+		 * Parses the class header and the signatures of methods and fields.
+		 * The class keeps its bytecode and parses a method body 
+		 * when the body is requested for the first time.
+		 */
+		LAZY,
+		/**
+		 * Parses the class header and the signatures of methods and fields
+		 * without debug information.
+		 * The class discards its bytecode; methods in the class have no instructions.
+		 * This profile is suitable for building a class hierarchy.
+		 */
+		SIGNATURES,
+		/**
+		 * Parses only the class header: the class name, its super class and interfaces.
+		 * The class has no methods and fields.
+		 * This profile is suitable for library classes used only for sub-type relationships.
+		 */
+		HEADER
+	};
+	
 	/**
 	 * Creates a new <code>ClassInfo</code> instance from a binary stream.
 	 * @param fileName
@@ -57,8 +96,52 @@ public class ClassInfo {
 	 * the callers must close the stream by themselves.
 	 */
 	public ClassInfo(String fileName, InputStream binaryStream) throws IOException {
+		this(fileName, FileUtil.readFully(binaryStream));
+	}
+
+	/**
+	 * Creates a new <code>ClassInfo</code> instance from a byte array.
+	 * @param fileName
+	 * @param bytes specifies Java bytecode.
+	 * @param loaderLabel specifies a label indicating a location/category for a class.
+	 * @throws IOException
+	 */
+	public ClassInfo(String fileName, byte[] bytes, String loaderLabel) throws IOException {
+		this(fileName, bytes, loaderLabel, ParseProfile.FULL);
+	}
+
+	/**
+	 * Creates a new <code>ClassInfo</code> instance from a byte array.
+	 * @param fileName
+	 * @param bytes specifies Java bytecode.
+	 * The array must not be modified after the call. 
+	 */
+	public ClassInfo(String fileName, byte[] bytes) throws IOException {
+		this(fileName, bytes, null, ParseProfile.FULL);
+	}
+
+	/**
+	 * Creates a new <code>ClassInfo</code> instance from a byte array.
+	 * @param fileName
+	 * @param bytes specifies Java bytecode.
+	 * The array must not be modified after the call. 
+	 * @param loaderLabel specifies a label indicating a location/category for a class.
+	 * @param profile specifies information parsed by the constructor.
+	 * @throws IOException
+	 */
+	public ClassInfo(String fileName, byte[] bytes, String loaderLabel, ParseProfile profile) throws IOException {
+		this(fileName, bytes, loaderLabel, profile, MD5.getMD5(bytes));
+	}
+
+	/**
+	 * Creates a new <code>ClassInfo</code> instance from a byte array 
+	 * whose hash value is already computed.
+	 * @param md5hash is the MD5 hash value of the bytes.
+	 */
+	ClassInfo(String fileName, byte[] bytes, String loaderLabel, ParseProfile profile, String md5hash) throws IOException {
 		this.fileName = fileName; 
-		byte[] bytes = FileUtil.readFully(binaryStream);
+		this.label = loaderLabel;
+		this.profile = profile;
 		ClassReader cr1;
 		try {
 			cr1 = new ClassReader(bytes) {
@@ -75,14 +158,30 @@ public class ClassInfo {
 		} catch (ArrayIndexOutOfBoundsException e) {
 			throw new ClassReadFailureException("ASM ClassReader cannot parse the bytecode. " + fileName + " " + e.getLocalizedMessage());
 		}
+		final boolean headerOnly = (profile == ParseProfile.HEADER);
 		ClassNode classNode = new ClassNode(Opcodes.ASM5) {
 			@Override
 			public MethodVisitor visitMethod(int access, String name,
 					String desc, String signature, String[] exceptions) {
+				if (headerOnly) return null;
 				return new JSRInlinerAdapter(super.visitMethod(access, name, desc, signature, exceptions), access, name, desc, signature, exceptions);
 			}
+			
+			@Override
+			public FieldVisitor visitField(int access, String name,
+					String desc, String signature, Object value) {
+				if (headerOnly) return null;
+				return super.visitField(access, name, desc, signature, value);
+			}
 		};
-		cr1.accept(classNode, 0);
+		if (profile == ParseProfile.LAZY) {
+			cr1.accept(classNode, ClassReader.SKIP_CODE);
+			this.bytecode = cr1;
+		} else if (profile == ParseProfile.SIGNATURES || profile == ParseProfile.HEADER) {
+			cr1.accept(classNode, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+		} else {
+			cr1.accept(classNode, 0);
+		}
 		this.className = classNode.name;
 
 		int pkgIndex = className.lastIndexOf(PACKAGE_SEPARATOR);
@@ -98,15 +197,23 @@ public class ClassInfo {
 			this.sourceFileName = null;
 		}
 
-		this.md5hash = MD5.getMD5(bytes);
+		this.md5hash = md5hash;
 
 		for (MethodNode m: classNode.methods) {
-			methods.add(new MethodInfo(this, m));
+			methods.add(new MethodInfo(this, m, profile == ParseProfile.FULL));
 		}
 		
 		for (int i=0; i<classNode.fields.size(); ++i) {
 			fields.add(new FieldInfo(this, (FieldNode)classNode.fields.get(i)));
 		}
+		methodTable = new MethodTable(methods.size());
+		methodTable.addAll(methods);
+		fieldTable = new HashMap<String, FieldInfo>(Math.max(4, fields.size() * 4 / 3 + 1));
+		for (FieldInfo f: fields) {
+			if (!fieldTable.containsKey(f.getFieldName())) {
+				fieldTable.put(f.getFieldName(), f);
+			}
+		}
 		superclassName = classNode.superName;
 		interfaceNames = new ArrayList<String>(classNode.interfaces.size());
 		for (int i=0; i<classNode.interfaces.size(); ++i) {
@@ -120,6 +227,127 @@ public class ClassInfo {
 		c.label = LIBRARY_LABEL;
 		return c;
 	}
+
+	/**
+	 * Creates a library class parsed by a specified profile.
+	 * @param fileName
+	 * @param binaryStream specifies a stream of Java bytecode.
+	 * @param profile specifies information parsed by the method.
+	 * <code>ParseProfile.SIGNATURES</code> or <code>ParseProfile.HEADER</code> creates a lightweight stub.
+	 * @return a <code>ClassInfo</code> object labeled <code>LIBRARY_LABEL</code>.
+	 */
+	public static ClassInfo createLibraryClass(String fileName, InputStream binaryStream, ParseProfile profile) throws IOException {
+		return new ClassInfo(fileName, FileUtil.readFully(binaryStream), LIBRARY_LABEL, profile);
+	}
+	
+	/**
+	 * @return true if method bodies of this class are available.
+	 * The return value is false for classes parsed by 
+	 * <code>ParseProfile.SIGNATURES</code> and <code>ParseProfile.HEADER</code>.
+	 */
+	public boolean isBodyAvailable() {
+		return profile == ParseProfile.FULL || profile == ParseProfile.LAZY;
+	}
+	
+	/**
+	 * @return the profile used to parse this class.
+	 */
+	public ParseProfile getParseProfile() {
+		return profile;
+	}
+	
+	/**
+	 * Specifies a cache storing the analysis results of methods in this class.
+	 * @param cache is a cache object.  If null, methods are always analyzed.
+	 */
+	public void setAnalysisCache(AnalysisCache cache) {
+		this.analysisCache = cache;
+	}
+	
+	/**
+	 * @return the cache storing the analysis results of methods in this class.
+	 * The method returns null if the cache is not specified.
+	 */
+	public AnalysisCache getAnalysisCache() {
+		return analysisCache;
+	}
+	
+	/**
+	 * Specifies a cache limiting the analysis results held by methods in this class.
+	 * The cache should be specified before methods are analyzed.
+	 * @param cache is a cache object.  If null, methods keep their results.
+	 */
+	public void setBoundedAnalysisCache(BoundedAnalysisCache cache) {
+		this.boundedAnalysisCache = cache;
+	}
+	
+	/**
+	 * @return the cache limiting the analysis results held by methods in this class.
+	 * The method returns null if the cache is not specified.
+	 */
+	public BoundedAnalysisCache getBoundedAnalysisCache() {
+		return boundedAnalysisCache;
+	}
+	
+	/**
+	 * Parses a method body from the bytecode kept by a lazily parsed class.
+	 * The class reader created by the lazy parse is reused, 
+	 * and the parse stops when the method is found.
+	 * Multiple threads may parse methods of the same class, 
+	 * since a class reader only caches constant pool entries during a parse.
+	 * @param methodName is a method name.
+	 * @param methodDesc is a method descriptor.
+	 * @return a method node including instructions.
+	 * The method returns null if the class does not keep its bytecode. 
+	 */
+	MethodNode parseMethodBody(final String methodName, final String methodDesc) {
+		if (bytecode == null) return null;
+		final MethodNode[] result = new MethodNode[1];
+		try {
+			bytecode.accept(new ClassVisitor(Opcodes.ASM9) {
+				@Override
+				public FieldVisitor visitField(int access, String name,
+						String desc, String signature, Object value) {
+					return null;
+				}
+
+				@Override
+				public MethodVisitor visitMethod(int access, String name,
+						String desc, String signature, String[] exceptions) {
+					if (name.equals(methodName) && desc.equals(methodDesc)) {
+						result[0] = new MethodNode(Opcodes.ASM9, access, name, desc, signature, exceptions) {
+							@Override
+							public void visitEnd() {
+								super.visitEnd();
+								throw MethodFoundException.INSTANCE;
+							}
+						};
+						return new JSRInlinerAdapter(result[0], access, name, desc, signature, exceptions);
+					} else {
+						// ClassReader skips the method.
+						return null;
+					}
+				}
+			}, 0);
+		} catch (MethodFoundException e) {
+			// The remaining methods are not visited.
+		}
+		return result[0];
+	}
+	
+	/**
+	 * Stops a <code>ClassReader</code> after a method body is parsed.
+	 */
+	private static class MethodFoundException extends RuntimeException {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private static final MethodFoundException INSTANCE = new MethodFoundException();
+		
+		private MethodFoundException() {
+			super(null, null, false, false);
+		}
+	}
 	
 	/**
 	 * @return a package name.
@@ -227,13 +455,7 @@ public class ClassInfo {
 	 * @return a <code>MethodInfo</code> object if the class declares the specified method. 
 	 */
 	public MethodInfo findMethod(String methodName, String methodDesc) {
-		for (MethodInfo m: methods) {
-			if (m.getMethodName().equals(methodName) &&
-					m.getDescriptor().equals(methodDesc)) {
-				return m;
-			}
-		}
-		return null;
+		return methodTable.find(methodName, methodDesc);
 	}
 	
 	/**
@@ -264,6 +486,13 @@ public class ClassInfo {
 	 * @return a <code>FieldInfo</code> object if the class declares the specified field.
 	 */
 	public FieldInfo findField(String fieldName, String fieldDesc) {
+		FieldInfo first = fieldTable.get(fieldName);
+		if (first == null) {
+			return null;
+		} else if (first.getDescriptor().equals(fieldDesc)) {
+			return first;
+		}
+		// A class file may include fields having the same name and different types
 		for (FieldInfo f: fields) {
 			if (f.getFieldName().equals(fieldName) &&
 					f.getDescriptor().equals(fieldDesc)) {
@@ -0,0 +1,96 @@
+package soba.core;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class shares <code>ClassInfo</code> objects among <code>JavaProgram</code> objects.
+ * Classes are identified by the hash values of their bytecode,
+ * labels and parse profiles.
+ * Once a class is parsed, the same bytecode is not parsed again,
+ * and the analysis results computed by its methods are also shared.
+ * A shared object keeps the file name given when it is parsed for the first time.
+ * An object can be accessed by multiple threads.
+ * 
+ * The pool keeps strong references to its classes, including their method bodies
+ * and analysis results, even after the programs sharing them are discarded.
+ * A long-running process should remove classes that are no longer used 
+ * by <code>remove</code> or <code>clear</code>, 
+ * or limit the analysis results by a <code>BoundedAnalysisCache</code>.
+ */
+public class ClassInfoPool {
+
+	private ConcurrentHashMap<String, ClassInfo> classes;
+
+	/**
+	 * Creates a new empty <code>ClassInfoPool</code> instance.
+	 */
+	public ClassInfoPool() {
+		classes = new ConcurrentHashMap<>(65536);
+	}
+
+	/**
+	 * Returns a <code>ClassInfo</code> object for the specified bytecode.
+	 * If the pool does not have the class, a new object is created and added to the pool.
+	 * @param fileName
+	 * @param bytes specifies Java bytecode.
+	 * The array must not be modified after the call.
+	 * @param loaderLabel specifies a label indicating a location/category for a class.
+	 * @param profile specifies information parsed by the constructor.
+	 * @return a <code>ClassInfo</code> object.
+	 * @throws IOException
+	 */
+	public ClassInfo getClassInfo(String fileName, byte[] bytes, String loaderLabel, ClassInfo.ParseProfile profile) throws IOException {
+		String hash = MD5.getMD5(bytes);
+		if (hash == null) {
+			return new ClassInfo(fileName, bytes, loaderLabel, profile, hash);
+		}
+		String key = hash + "/" + profile + "/" + loaderLabel;
+		ClassInfo c = classes.get(key);
+		if (c == null) {
+			c = new ClassInfo(fileName, bytes, loaderLabel, profile, hash);
+			ClassInfo another = classes.putIfAbsent(key, c);
+			if (another != null) {
+				c = another;
+			}
+		}
+		return c;
+	}
+
+	/**
+	 * @return the number of classes in the pool.
+	 */
+	public int size() {
+		return classes.size();
+	}
+
+	/**
+	 * Removes the classes having the specified hash value,
+	 * regardless of their labels and parse profiles.
+	 * Objects already shared by programs are not affected;
+	 * the bytecode is parsed again when it is requested next time.
+	 * The method takes time proportional to the size of the pool.
+	 * @param hash is the MD5 hash value of a class file, i.e. <code>ClassInfo.getHash()</code>.
+	 * @return the number of removed classes.
+	 */
+	public int remove(String hash) {
+		String prefix = hash + "/";
+		int count = 0;
+		for (Iterator<String> it = classes.keySet().iterator(); it.hasNext(); ) {
+			if (it.next().startsWith(prefix)) {
+				it.remove();
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Removes all classes from the pool.
+	 * Objects already shared by programs are not affected.
+	 */
+	public void clear() {
+		classes.clear();
+	}
+}
@@ -0,0 +1,151 @@
+package soba.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashSet;
+import java.util.Set;
+
+import soba.util.files.FileUtil;
+import soba.util.files.IClassList;
+import soba.util.files.IClassListCallback;
+
+/**
+ * This class reads classes in class lists and selects classes to be registered.
+ * A class is registered if it is accepted by a class filter
+ * and no class having the same name has been registered;
+ * in other words, the first one in the lists is registered.
+ * Classes are read by the caller thread, or by <code>PipelinedClassReader</code>
+ * if the options enable parallel loading.
+ * In both cases, a receiver observes the same sequence of classes.
+ */
+class ClassListReader {
+
+	private IClassList[] lists;
+	private IClassFilter filter;
+	private ProgramOptions options;
+	private ClassInfoPool pool;
+
+	/**
+	 * Creates a new <code>ClassListReader</code> instance.
+	 * @param lists specifies class lists.
+	 * @param filter specifies classes to be loaded and registered.  It may be null.
+	 * @param options specifies how to load classes.
+	 * @param pool specifies a pool of shared classes.  It may be null.
+	 */
+	public ClassListReader(IClassList[] lists, IClassFilter filter, ProgramOptions options, ClassInfoPool pool) {
+		this.lists = lists;
+		this.filter = filter;
+		this.options = options;
+		this.pool = pool;
+	}
+
+	/**
+	 * Reads all the classes in the class lists.
+	 * @param receiver receives the classes in the order of the class lists.
+	 * The methods are called by the thread calling this method.
+	 */
+	public void read(final IReceiver receiver) {
+		final Set<String> names = new HashSet<String>();
+		PipelinedClassReader.IReceiver r = new PipelinedClassReader.IReceiver() {
+			@Override
+			public void accept(String name, ClassInfo c) {
+				if (filter == null || filter.acceptClass(c)) {
+					if (names.add(c.getClassName())) {
+						receiver.register(name, c);
+					} else {
+						receiver.duplicated(name, c);
+					}
+				} else {
+					receiver.filtered(name);
+				}
+			}
+
+			@Override
+			public void filtered(String name) {
+				receiver.filtered(name);
+			}
+
+			@Override
+			public void reportError(String name, Exception e) {
+				receiver.reportError(name, e);
+			}
+		};
+		if (options.isParallel()) {
+			PipelinedClassReader reader = new PipelinedClassReader(lists, filter, options, pool);
+			reader.read(r);
+		} else {
+			readSequentially(r);
+		}
+	}
+
+	private void readSequentially(final PipelinedClassReader.IReceiver receiver) {
+		for (final IClassList list: lists) {
+			if (list == null) continue;
+
+			final ClassInfo.ParseProfile profile = options.getParseProfile(list.getLabel());
+			list.process(new IClassListCallback() {
+
+				@Override
+				public boolean reportError(String name, Exception e) {
+					receiver.reportError(name, e);
+					return false;
+				}
+
+				@Override
+				public void process(String name, InputStream stream) throws IOException {
+					if (filter == null || filter.loadClass(name)) {
+						receiver.accept(name, parse(pool, name, FileUtil.readFully(stream), list.getLabel(), profile));
+					} else {
+						receiver.filtered(name);
+					}
+				}
+
+				@Override
+				public boolean isTarget(String name) {
+					return name.endsWith(".class");
+				}
+			});
+		}
+	}
+
+	/**
+	 * Creates a <code>ClassInfo</code> object, or obtains a shared one from a pool.
+	 * @param pool may be null.
+	 */
+	static ClassInfo parse(ClassInfoPool pool, String name, byte[] bytes, String label, ClassInfo.ParseProfile profile) throws IOException {
+		if (pool != null) {
+			return pool.getClassInfo(name, bytes, label, profile);
+		} else {
+			return new ClassInfo(name, bytes, label, profile);
+		}
+	}
+
+	/**
+	 * Receives classes from <code>ClassListReader</code>.
+	 */
+	public interface IReceiver {
+
+		/**
+		 * @param name is a class file name.
+		 * @param c is a class to be registered.
+		 */
+		public void register(String name, ClassInfo c);
+
+		/**
+		 * @param name is a class file name.
+		 * @param c is a class whose name is the same as a registered class.
+		 */
+		public void duplicated(String name, ClassInfo c);
+
+		/**
+		 * @param name is a class file name rejected by the class filter.
+		 */
+		public void filtered(String name);
+
+		/**
+		 * @param name is a class file name.
+		 * @param e is an exception occurred during the process.
+		 */
+		public void reportError(String name, Exception e);
+	}
+}
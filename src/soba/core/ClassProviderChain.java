@@ -0,0 +1,49 @@
+package soba.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This class combines multiple class providers into one provider.
+ * A class is taken from the first provider having the class;
+ * for example, a chain of a <code>JdkSnapshot</code> and a <code>LibraryIndex</code>
+ * provides JDK classes from the snapshot and the other classes from the index.
+ * An object can be accessed by multiple threads if the providers can be accessed.
+ */
+public class ClassProviderChain implements IClassProvider {
+
+	private List<IClassProvider> providers;
+
+	/**
+	 * Creates a new <code>ClassProviderChain</code> instance.
+	 * @param providers specifies providers in the order of priority.
+	 * Null elements are ignored.
+	 */
+	public ClassProviderChain(IClassProvider... providers) {
+		this.providers = new ArrayList<IClassProvider>(providers.length);
+		for (IClassProvider p: providers) {
+			if (p != null) this.providers.add(p);
+		}
+	}
+
+	/**
+	 * @return the providers in the order of priority.
+	 */
+	public List<IClassProvider> getProviders() {
+		return Collections.unmodifiableList(providers);
+	}
+
+	/**
+	 * @return a <code>ClassInfo</code> object of the class returned by the first provider having the class.
+	 * The return value is null if no providers have the class.
+	 */
+	@Override
+	public ClassInfo getClassInfo(String className) {
+		for (IClassProvider p: providers) {
+			ClassInfo c = p.getClassInfo(className);
+			if (c != null) return c;
+		}
+		return null;
+	}
+}
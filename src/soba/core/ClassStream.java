@@ -0,0 +1,149 @@
+package soba.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import soba.core.JavaProgram.ErrorMessage;
+import soba.util.files.IClassList;
+
+/**
+ * This class passes classes in class lists to a callback one by one.
+ * Unlike <code>JavaProgram</code>, this class does not keep the loaded classes.
+ * Hence, a class and its analysis results can be garbage-collected
+ * after the callback finished processing it.
+ * The callback receives the same classes in the same order as <code>JavaProgram.getClasses()</code>.
+ *
+ * Optionally, the object can build a class hierarchy before processing classes.
+ * The hierarchy is built from classes parsed by <code>ParseProfile.SIGNATURES</code>.
+ */
+public class ClassStream {
+
+	private IClassList[] lists;
+	private IClassFilter filter;
+	private ProgramOptions options;
+	private boolean buildHierarchy;
+	private ClassHierarchy classHierarchy;
+	private List<ErrorMessage> errors;
+
+	/**
+	 * Creates a new <code>ClassStream</code> instance.
+	 * @param lists specifies class files to be processed.
+	 * @param filter specifies classes to be processed.
+	 */
+	public ClassStream(IClassList[] lists, IClassFilter filter) {
+		this(lists, filter, new ProgramOptions());
+	}
+
+	/**
+	 * Creates a new <code>ClassStream</code> instance.
+	 * @param lists specifies class files to be processed.
+	 * @param filter specifies classes to be processed.
+	 * @param options specifies how to load classes.
+	 * A <code>ClassInfoPool</code> in the options is not used,
+	 * since the pool keeps all the loaded classes.
+	 */
+	public ClassStream(IClassList[] lists, IClassFilter filter, ProgramOptions options) {
+		this.lists = lists;
+		this.filter = filter;
+		this.options = options;
+		this.errors = new ArrayList<ErrorMessage>();
+	}
+
+	/**
+	 * Enables the first pass building a class hierarchy.
+	 * The class lists are read twice if the pass is enabled.
+	 */
+	public void enableClassHierarchy() {
+		this.buildHierarchy = true;
+	}
+
+	/**
+	 * @return a <code>ClassHierarchy</code> object built by the first pass.
+	 * The object is available in the callback.
+	 * This method returns null if the pass is not enabled or not executed yet.
+	 * <code>ClassInfo</code> objects in the hierarchy have no method bodies.
+	 */
+	public ClassHierarchy getClassHierarchy() {
+		return classHierarchy;
+	}
+
+	/**
+	 * @return a list of error messages.
+	 */
+	public List<ErrorMessage> getErrors() {
+		return errors;
+	}
+
+	/**
+	 * Passes classes to a callback.
+	 * The callback is called by the thread calling this method.
+	 * @param processor receives classes.
+	 */
+	public void process(final IClassProcessor processor) {
+		if (buildHierarchy) {
+			final ClassHierarchy h = new ClassHierarchy();
+			ProgramOptions signatures = new ProgramOptions();
+			signatures.setParallelism(options.getParallelism());
+			signatures.setParseProfile(ClassInfo.ParseProfile.SIGNATURES);
+			// Library classes may be parsed with less information
+			if (options.getLibraryParseProfile() == ClassInfo.ParseProfile.HEADER) {
+				signatures.setLibraryParseProfile(ClassInfo.ParseProfile.HEADER);
+			}
+			new ClassListReader(lists, filter, signatures, null).read(new ClassListReader.IReceiver() {
+				@Override
+				public void register(String name, ClassInfo c) {
+					h.registerClass(c);
+				}
+
+				@Override
+				public void duplicated(String name, ClassInfo c) {
+				}
+
+				@Override
+				public void filtered(String name) {
+				}
+
+				@Override
+				public void reportError(String name, Exception e) {
+					// Errors are recorded by the second pass.
+				}
+			});
+			classHierarchy = h;
+		}
+
+		new ClassListReader(lists, filter, options, null).read(new ClassListReader.IReceiver() {
+			@Override
+			public void register(String name, ClassInfo c) {
+				if (options.getAnalysisCache() != null) {
+					c.setAnalysisCache(options.getAnalysisCache());
+				}
+				processor.process(c);
+			}
+
+			@Override
+			public void duplicated(String name, ClassInfo c) {
+			}
+
+			@Override
+			public void filtered(String name) {
+			}
+
+			@Override
+			public void reportError(String name, Exception e) {
+				errors.add(new ErrorMessage(name, e));
+			}
+		});
+	}
+
+	/**
+	 * Receives classes from <code>ClassStream</code>.
+	 */
+	public interface IClassProcessor {
+
+		/**
+		 * @param c is a loaded class.
+		 * The object is not referred by <code>ClassStream</code> after the call.
+		 */
+		public void process(ClassInfo c);
+	}
+}
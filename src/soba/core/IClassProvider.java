@@ -0,0 +1,18 @@
+package soba.core;
+
+/**
+ * This interface provides classes that are not loaded into a program.
+ * A <code>ClassHierarchy</code> object asks a provider for a class
+ * when the class is requested but not registered.
+ * @see LibraryIndex
+ */
+public interface IClassProvider {
+
+	/**
+	 * This method may be called by multiple threads.
+	 * @param className is a class name including its package name.
+	 * @return a <code>ClassInfo</code> object of the class.
+	 * The return value is null if the provider does not have the class.
+	 */
+	public ClassInfo getClassInfo(String className);
+}
@@ -1,6 +1,10 @@
 package soba.core;
 
+import java.util.List;
+
 import soba.core.method.CallSite;
+import soba.util.IntPairList;
+import soba.util.ObjectIdMap;
 
 public interface IDynamicBindingResolver {
 
@@ -10,4 +14,21 @@ public interface IDynamicBindingResolver {
 	 * @return an array of the methods which may be invoked.
 	 */
 	public MethodInfo[] resolveCall(CallSite cs);
+	
+	/**
+	 * Resolves the dynamic binding of method invocations at once.
+	 * Implementations may share the work among invocations of the same method.
+	 * @param callSites is a list of method invocations.
+	 * @param methodIds translates a method into an integer.
+	 * @param result receives a pair (i, id) for each method that may be invoked by the i-th call site.
+	 * Pairs are added in the order of call sites, 
+	 * and the methods of a call site are in the same order as <code>resolveCall</code>.
+	 */
+	public default void resolveCalls(List<CallSite> callSites, ObjectIdMap<MethodInfo> methodIds, IntPairList result) {
+		for (int i=0; i<callSites.size(); ++i) {
+			for (MethodInfo m: resolveCall(callSites.get(i))) {
+				result.add(i, methodIds.getId(m));
+			}
+		}
+	}
 }
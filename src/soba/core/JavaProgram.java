@@ -1,14 +1,20 @@
 package soba.core;
 
-import java.io.IOException;
-import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import gnu.trove.procedure.TIntProcedure;
 import soba.util.files.IClassList;
-import soba.util.files.IClassListCallback;
 
 
 /**
@@ -22,6 +28,8 @@ public class JavaProgram {
 	private List<ClassInfo> duplicated;
 	private List<String> filtered;
 	private List<ErrorMessage> errors;
+	private AnalysisCache analysisCache;
+	private BoundedAnalysisCache boundedAnalysisCache;
 
 	/**
 	 * Creates a new <code>JavaProgram</code> instance.
@@ -37,6 +45,20 @@ public class JavaProgram {
 	 * @param filter specifies classes to be analyzed.
 	 */
 	public JavaProgram(final IClassList[] lists, final IClassFilter filter) {
+		this(lists, filter, new ProgramOptions());
+	}
+	
+	/**
+	 * Creates a new <code>JavaProgram</code> instance specifying classes to be analyzed.
+	 * @param lists specifies class files to be loaded.
+	 * @param filter specifies classes to be analyzed.
+	 * If the options enable parallel loading, 
+	 * <code>IClassFilter.loadClass</code> may be called by multiple threads.
+	 * @param options specifies how to load classes.
+	 * The resultant program is the same regardless of the options;
+	 * if two or more classes have the same name, the first one in the lists is loaded.
+	 */
+	public JavaProgram(final IClassList[] lists, final IClassFilter filter, final ProgramOptions options) {
 		classes = new HashMap<String, ClassInfo>(65536);
 		errors = new ArrayList<ErrorMessage>(1024);
 		loaded = new ArrayList<ClassInfo>(65536);
@@ -44,45 +66,227 @@ public class JavaProgram {
 		filtered = new ArrayList<String>(1024);
 		classHierarchy = new ClassHierarchy();
 		
-		for (final IClassList list: lists) {
-			if (list == null) continue;
+		load(lists, filter, options);
+		analysisCache = options.getAnalysisCache();
+		boundedAnalysisCache = options.getBoundedAnalysisCache();
+		for (ClassInfo c: loaded) {
+			setCaches(c);
+		}
+		// Classes from the provider are registered to the hierarchy only
+		classHierarchy.setClassProvider(options.getClassProvider());
+		if (options.isFrozenHierarchy()) {
+			classHierarchy.freeze();
+		}
+	}
+	
+	/**
+	 * Loads classes in the lists.
+	 * Classes are registered by the caller thread in the order of the lists,
+	 * even if the options enable parallel loading. 
+	 */
+	private void load(final IClassList[] lists, final IClassFilter filter, ProgramOptions options) {
+		ClassListReader reader = new ClassListReader(lists, filter, options, options.getClassInfoPool());
+		reader.read(new ClassListReader.IReceiver() {
+			
+			@Override
+			public void register(String name, ClassInfo c) {
+				classes.put(c.getClassName(), c);
+				loaded.add(c);
+				classHierarchy.registerClass(c);
+			}
+			
+			@Override
+			public void duplicated(String name, ClassInfo c) {
+				duplicated.add(c);
+			}
 			
-			list.process(new IClassListCallback() {
-				
+			@Override
+			public void filtered(String name) {
+				filtered.add(name);
+			}
+			
+			@Override
+			public void reportError(String name, Exception e) {
+				errors.add(new ErrorMessage(name, e));
+			}
+		});
+	}
+	
+	/**
+	 * Specifies the caches of the program to a class 
+	 * unless the class already has caches, e.g. it is shared through a <code>ClassInfoPool</code>.
+	 */
+	private void setCaches(ClassInfo c) {
+		if (analysisCache != null && c.getAnalysisCache() == null) {
+			c.setAnalysisCache(analysisCache);
+		}
+		if (boundedAnalysisCache != null && c.getBoundedAnalysisCache() == null) {
+			c.setBoundedAnalysisCache(boundedAnalysisCache);
+		}
+	}
+	
+	/**
+	 * Adds a class to the program, or replaces a class having the same name.
+	 * A class is replaced only if its hash value differs from the existing one.
+	 * A class filter given to the constructor is not applied to the class.
+	 * @param c specifies a class.
+	 * @return a set of type names whose resolution results may have been changed by the operation,
+	 * so that cached results for the types can be invalidated selectively.
+	 * The set includes the class itself, its sub-types (which inherit its members),
+	 * and all the ancestors of the old and new classes (whose sub-types have been changed).
+	 * The set is empty if the program already has the same class.
+	 * If the class hierarchy is frozen, it is unfrozen during the operation and frozen again;
+	 * the hierarchy discards its cached results only for the types in the set.
+	 * The hierarchy must not be queried by other threads during the operation.
+	 */
+	public Set<String> updateClass(ClassInfo c) {
+		ClassInfo old = classes.get(c.getClassName());
+		if (old != null && old.getHash() != null && old.getHash().equals(c.getHash())) {
+			return new HashSet<String>();
+		}
+		boolean frozen = classHierarchy.isFrozen();
+		classHierarchy.unfreeze();
+		try {
+			Set<String> changed = new HashSet<String>();
+			if (old != null) {
+				changed.addAll(getAffectedTypes(old.getClassName()));
+				classHierarchy.unregisterClass(old.getClassName());
+			}
+			classHierarchy.registerClass(c);
+			setCaches(c);
+			classes.put(c.getClassName(), c);
+			if (old != null) {
+				loaded.set(loaded.indexOf(old), c);
+			} else {
+				loaded.add(c);
+			}
+			changed.addAll(getAffectedTypes(c.getClassName()));
+			return changed;
+		} finally {
+			if (frozen) {
+				classHierarchy.freeze();
+			}
+		}
+	}
+	
+	/**
+	 * Removes a class from the program.
+	 * @param className specifies a class name.
+	 * @return a set of type names whose resolution results may have been changed by the operation.
+	 * The set includes the class itself, its sub-types and all its ancestors.
+	 * The set is empty if the program does not have the class.
+	 * A frozen class hierarchy is updated in the same way as <code>updateClass</code>.
+	 */
+	public Set<String> removeClass(String className) {
+		ClassInfo old = classes.get(className);
+		if (old == null) {
+			return new HashSet<String>();
+		}
+		boolean frozen = classHierarchy.isFrozen();
+		classHierarchy.unfreeze();
+		try {
+			Set<String> changed = getAffectedTypes(className);
+			classHierarchy.unregisterClass(className);
+			classes.remove(className);
+			loaded.remove(old);
+			return changed;
+		} finally {
+			if (frozen) {
+				classHierarchy.freeze();
+			}
+		}
+	}
+	
+	/**
+	 * @return a set including a registered class, its transitive sub-types and its ancestors.
+	 */
+	private Set<String> getAffectedTypes(String className) {
+		Set<String> types = new HashSet<String>();
+		types.addAll(classHierarchy.getAllSubtypes(Collections.singleton(className)));
+		types.addAll(classHierarchy.listAllSuperTypes(className));
+		return types;
+	}
+	
+	/**
+	 * Computes control-flow and data-flow of all the methods in the loaded classes.
+	 * Methods are analyzed by a fork-join pool in descending order of their sizes,
+	 * so that a large method is not left alone at the end of the analysis.
+	 * Methods whose bodies are not available are skipped.
+	 * @param parallelism specifies the number of threads.
+	 * A value less than 2 analyzes methods by the caller thread.
+	 */
+	public void analyzeAll(int parallelism) {
+		List<MethodInfo> list = new ArrayList<MethodInfo>();
+		for (ClassInfo c: loaded) {
+			for (MethodInfo m: c.getMethods()) {
+				if (m.isBodyAvailable()) {
+					list.add(m);
+				}
+			}
+		}
+		final MethodInfo[] methods = list.toArray(new MethodInfo[list.size()]);
+		final int[] sizes = new int[methods.length];
+		final Integer[] order = new Integer[methods.length];
+		ForkJoinPool pool = (parallelism > 1) ? new ForkJoinPool(parallelism) : null;
+		try {
+			// Sizes are obtained in parallel, since lazily parsed classes load method bodies
+			runInParallel(pool, parallelism, methods.length, new TIntProcedure() {
 				@Override
-				public boolean reportError(String name, Exception e) {
-					errors.add(new ErrorMessage(name, e));
-					return false;
+				public boolean execute(int index) {
+					sizes[index] = methods[index].getInstructionCount();
+					order[index] = index;
+					return true;
 				}
-				
+			});
+			Arrays.sort(order, new Comparator<Integer>() {
 				@Override
-				public void process(String name, InputStream stream) throws IOException {
-					if (filter == null || filter.loadClass(name)) {
-						ClassInfo c = new ClassInfo(name, stream, list.getLabel());
-						if (filter == null || filter.acceptClass(c)) {
-							if (!classes.containsKey(c.getClassName())) {
-								classes.put(c.getClassName(), c);
-								loaded.add(c);
-								classHierarchy.registerClass(c);
-							} else {
-								duplicated.add(c);
-							}
-						} else {
-							filtered.add(name);
-						}
-					} else {
-						filtered.add(name);
-					}
+				public int compare(Integer o1, Integer o2) {
+					return Integer.compare(sizes[o2], sizes[o1]);
 				}
-				
+			});
+			runInParallel(pool, parallelism, methods.length, new TIntProcedure() {
 				@Override
-				public boolean isTarget(String name) {
-					return name.endsWith(".class");
+				public boolean execute(int index) {
+					methods[order[index]].getDataDependence();
+					return true;
 				}
 			});
+		} finally {
+			if (pool != null) {
+				pool.shutdown();
+			}
 		}
 	}
-		
+	
+	/**
+	 * Executes a procedure for indices 0 .. count-1.
+	 * Each thread takes the next index from a shared counter, 
+	 * so that indices are processed approximately in ascending order.
+	 * @param pool may be null; the caller thread executes the procedure.
+	 */
+	private static void runInParallel(ForkJoinPool pool, int parallelism, final int count, final TIntProcedure proc) {
+		final AtomicInteger next = new AtomicInteger();
+		Runnable worker = new Runnable() {
+			@Override
+			public void run() {
+				for (int i = next.getAndIncrement(); i < count; i = next.getAndIncrement()) {
+					proc.execute(i);
+				}
+			}
+		};
+		if (pool == null) {
+			worker.run();
+		} else {
+			List<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>(parallelism);
+			for (int i=0; i<parallelism; ++i) {
+				tasks.add(pool.submit(worker));
+			}
+			for (ForkJoinTask<?> t: tasks) {
+				t.join();
+			}
+		}
+	}
+	
 	/**
 	 * @return a list of loaded <code>ClassInfo</code> objects.
 	 */
@@ -129,6 +333,10 @@ public class JavaProgram {
 	
 	/**
 	 * @return a <code>ClassHierarchy</code> object which has hierarchy information of the analyzed classes.
+	 * If <code>ProgramOptions.setClassProvider</code> is specified, the hierarchy also includes 
+	 * library classes loaded on demand; they are not included in <code>getClasses()</code>.
+	 * The hierarchy is frozen if <code>ProgramOptions.setFrozenHierarchy</code> is specified;
+	 * otherwise, a caller may call <code>freeze()</code> to cache resolved calls.
 	 */
 	public ClassHierarchy getClassHierarchy() {
 		return classHierarchy;
@@ -0,0 +1,332 @@
+package soba.core;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.ProviderNotFoundException;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * This class is a snapshot of the classes in a Java runtime.
+ * A snapshot is created once from the <code>jrt:/</code> file system of the running JDK (9 or later)
+ * and written to a file.
+ * The file includes class files without method bodies and debug information,
+ * sorted by their class names.
+ * A snapshot file is memory-mapped when it is loaded;
+ * a class is parsed as a library class by <code>ParseProfile.SIGNATURES</code>
+ * when it is requested for the first time.
+ * An object can be given to <code>ClassHierarchy.setClassProvider</code>
+ * as a read-only base layer of a program,
+ * or combined with a <code>LibraryIndex</code> by <code>ClassProviderChain</code>.
+ * An object can be accessed by multiple threads.
+ */
+public class JdkSnapshot implements IClassProvider {
+
+	/**
+	 * The version of the file format.
+	 * Files created by other versions are not loaded.
+	 */
+	public static final int FORMAT_VERSION = 1;
+
+	private static final int MAGIC = 0x534f424a; // "SOBJ"
+	private static final int ENTRY_SIZE = 16; // name offset, name length, data offset and data length
+	private static final String CLASS_SUFFIX = ".class";
+	private static final String MODULE_INFO = "module-info.class";
+	private static final int LATEST_MAJOR_VERSION = Opcodes.V16 & 0xffff;
+
+	private File file;
+	private ByteBuffer buffer;
+	private String javaVersion;
+	private int classCount;
+	private int tableOffset;
+	private ConcurrentHashMap<String, ClassInfo> loaded;
+
+	private JdkSnapshot(File file, ByteBuffer buffer) throws IOException {
+		this.file = file;
+		this.buffer = buffer;
+		this.loaded = new ConcurrentHashMap<String, ClassInfo>();
+		if (buffer.limit() < 12 || buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION) {
+			throw new IOException("Unsupported snapshot file " + file.getAbsolutePath());
+		}
+		int versionLength = buffer.getInt(8);
+		this.javaVersion = new String(getBytes(12, versionLength), StandardCharsets.UTF_8);
+		this.classCount = buffer.getInt(12 + versionLength);
+		this.tableOffset = 16 + versionLength;
+	}
+
+	/**
+	 * Loads a snapshot file created by <code>create</code>.
+	 * The file is mapped to memory; its content is read on demand.
+	 * @param f specifies a snapshot file.
+	 * @return a new <code>JdkSnapshot</code> object.
+	 * @throws IOException if the file cannot be read or it is created by another version.
+	 */
+	public static JdkSnapshot load(File f) throws IOException {
+		try (FileChannel channel = FileChannel.open(f.toPath(), StandardOpenOption.READ)) {
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			return new JdkSnapshot(f, buffer);
+		}
+	}
+
+	/**
+	 * Creates a snapshot file of the running JDK.
+	 * @param f specifies a file to be written.
+	 * @throws IOException if the running JDK does not provide the <code>jrt:/</code> file system.
+	 */
+	public static void create(File f) throws IOException {
+		FileSystem jrt;
+		try {
+			jrt = FileSystems.getFileSystem(URI.create("jrt:/"));
+		} catch (FileSystemNotFoundException e) {
+			throw new IOException("jrt:/ file system is not available in Java " + System.getProperty("java.version"), e);
+		} catch (ProviderNotFoundException e) {
+			throw new IOException("jrt:/ file system is not available in Java " + System.getProperty("java.version"), e);
+		}
+		final Map<String, byte[]> classes = new HashMap<String, byte[]>(65536);
+		// Each directory in /modules is a module; the paths in the module are class names
+		try (DirectoryStream<Path> modules = Files.newDirectoryStream(jrt.getPath("/modules"))) {
+			for (final Path module: modules) {
+				Files.walkFileTree(module, new SimpleFileVisitor<Path>() {
+					@Override
+					public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+						String entryName = module.relativize(file).toString();
+						if (entryName.endsWith(CLASS_SUFFIX) && !entryName.equals(MODULE_INFO)) {
+							String className = entryName.substring(0, entryName.length() - CLASS_SUFFIX.length());
+							if (!classes.containsKey(className)) {
+								classes.put(className, strip(Files.readAllBytes(file)));
+							}
+						}
+						return FileVisitResult.CONTINUE;
+					}
+				});
+			}
+		}
+		write(f, System.getProperty("java.version"), classes);
+	}
+
+	/**
+	 * @return a class file without method bodies, debug information and stack map frames.
+	 * A class file newer than the ASM library is read as the latest version supported by ASM,
+	 * since the class header and signatures are compatible.
+	 */
+	private static byte[] strip(byte[] bytes) {
+		int major = ((bytes[6] & 0xff) << 8) | (bytes[7] & 0xff);
+		if (major > LATEST_MAJOR_VERSION) {
+			bytes[6] = (byte)(LATEST_MAJOR_VERSION >>> 8);
+			bytes[7] = (byte)LATEST_MAJOR_VERSION;
+		}
+		ClassReader reader = new ClassReader(bytes);
+		ClassWriter writer = new ClassWriter(0);
+		reader.accept(writer, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+		return writer.toByteArray();
+	}
+
+	/**
+	 * Writes a snapshot file.
+	 * The file is written to a temporary file and then renamed
+	 * so that other processes never read an incomplete file.
+	 * @param classes maps class names to their class files.
+	 */
+	static void write(File f, String javaVersion, Map<String, byte[]> classes) throws IOException {
+		List<byte[]> names = new ArrayList<byte[]>(classes.size());
+		for (String className: classes.keySet()) {
+			names.add(className.getBytes(StandardCharsets.UTF_8));
+		}
+		Collections.sort(names, new Comparator<byte[]>() {
+			@Override
+			public int compare(byte[] o1, byte[] o2) {
+				int length = Math.min(o1.length, o2.length);
+				for (int i=0; i<length; ++i) {
+					int diff = (o1[i] & 0xff) - (o2[i] & 0xff);
+					if (diff != 0) return diff;
+				}
+				return o1.length - o2.length;
+			}
+		});
+		byte[] version = javaVersion.getBytes(StandardCharsets.UTF_8);
+
+		long nameOffset = 16 + version.length + (long)ENTRY_SIZE * names.size();
+		long dataOffset = nameOffset;
+		for (byte[] name: names) {
+			dataOffset += name.length;
+		}
+		List<byte[]> data = new ArrayList<byte[]>(names.size());
+		long size = dataOffset;
+		for (byte[] name: names) {
+			byte[] bytes = classes.get(new String(name, StandardCharsets.UTF_8));
+			data.add(bytes);
+			size += bytes.length;
+		}
+		if (size > Integer.MAX_VALUE) {
+			throw new IOException("Too large snapshot: " + size + " bytes");
+		}
+
+		File parent = f.getAbsoluteFile().getParentFile();
+		File temp = File.createTempFile(f.getName(), ".tmp", parent);
+		try {
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+				out.writeInt(MAGIC);
+				out.writeInt(FORMAT_VERSION);
+				out.writeInt(version.length);
+				out.write(version);
+				out.writeInt(names.size());
+				for (int i=0; i<names.size(); ++i) {
+					out.writeInt((int)nameOffset);
+					out.writeInt(names.get(i).length);
+					out.writeInt((int)dataOffset);
+					out.writeInt(data.get(i).length);
+					nameOffset += names.get(i).length;
+					dataOffset += data.get(i).length;
+				}
+				for (byte[] name: names) {
+					out.write(name);
+				}
+				for (byte[] bytes: data) {
+					out.write(bytes);
+				}
+			}
+			try {
+				Files.move(temp.toPath(), f.toPath(), StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp.toPath(), f.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			if (temp.exists()) {
+				temp.delete();
+			}
+		}
+	}
+
+	/**
+	 * Compares a byte array with a range of the mapped file
+	 * in the unsigned lexicographical order.
+	 */
+	private int compareBytes(byte[] key, int offset, int otherLength) {
+		int length = Math.min(key.length, otherLength);
+		for (int i=0; i<length; ++i) {
+			int diff = (key[i] & 0xff) - (buffer.get(offset + i) & 0xff);
+			if (diff != 0) return diff;
+		}
+		return key.length - otherLength;
+	}
+
+	/**
+	 * @return a copy of a range of the mapped file.
+	 */
+	private byte[] getBytes(int offset, int length) {
+		byte[] bytes = new byte[length];
+		ByteBuffer b = buffer.duplicate();
+		b.position(offset);
+		b.get(bytes);
+		return bytes;
+	}
+
+	/**
+	 * @return the index of the class in the sorted table.  -1 if the class is not found.
+	 */
+	private int find(String className) {
+		byte[] key = className.getBytes(StandardCharsets.UTF_8);
+		int low = 0;
+		int high = classCount - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int entry = tableOffset + mid * ENTRY_SIZE;
+			int c = compareBytes(key, buffer.getInt(entry), buffer.getInt(entry + 4));
+			if (c == 0) return mid;
+			else if (c > 0) low = mid + 1;
+			else high = mid - 1;
+		}
+		return -1;
+	}
+
+	/**
+	 * @return the version of the Java runtime from which the snapshot was created.
+	 */
+	public String getJavaVersion() {
+		return javaVersion;
+	}
+
+	/**
+	 * @return the number of classes in the snapshot.
+	 */
+	public int size() {
+		return classCount;
+	}
+
+	/**
+	 * @param className is a class name including its package name.
+	 * @return true if the snapshot includes the class.
+	 */
+	public boolean contains(String className) {
+		return find(className) >= 0;
+	}
+
+	/**
+	 * A class is parsed once and the same object is returned for subsequent calls.
+	 * @param className is a class name including its package name.
+	 * @return a <code>ClassInfo</code> object labeled <code>ClassInfo.LIBRARY_LABEL</code>.
+	 * Its methods have no instructions.
+	 * The return value is null if the snapshot does not include the class.
+	 */
+	@Override
+	public ClassInfo getClassInfo(String className) {
+		ClassInfo c = loaded.get(className);
+		if (c != null) return c;
+
+		int index = find(className);
+		if (index < 0) return null;
+		int entry = tableOffset + index * ENTRY_SIZE;
+		byte[] bytes = getBytes(buffer.getInt(entry + 8), buffer.getInt(entry + 12));
+		try {
+			c = new ClassInfo(file.getAbsolutePath() + "/" + className + CLASS_SUFFIX, bytes, ClassInfo.LIBRARY_LABEL, ClassInfo.ParseProfile.SIGNATURES);
+		} catch (IOException e) {
+			return null;
+		}
+		ClassInfo another = loaded.putIfAbsent(className, c);
+		return (another != null) ? another : c;
+	}
+
+	/**
+	 * Creates a snapshot file of the running JDK.
+	 * @param args specifies an output file.
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 1) {
+			System.err.println("Usage: java " + JdkSnapshot.class.getName() + " output-file");
+			return;
+		}
+		long t = System.currentTimeMillis();
+		File f = new File(args[0]);
+		create(f);
+		JdkSnapshot snapshot = load(f);
+		System.err.println(snapshot.size() + " classes of Java " + snapshot.getJavaVersion() + " are written to " + f.getAbsolutePath() + " (" + (System.currentTimeMillis() - t) + " ms)");
+	}
+}
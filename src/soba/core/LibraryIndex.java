@@ -0,0 +1,343 @@
+package soba.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipEntry;
+
+/**
+ * This class indexes class files in library JAR files and directories
+ * without parsing them, and loads a class when it is requested.
+ * An index maps a class name to an archive including the class file.
+ * JAR files are indexed using their central directories;
+ * no entries are inflated until their classes are requested.
+ * If two or more archives include the same class name,
+ * the first archive added to the index provides the class.
+ * Loaded classes are labeled <code>ClassInfo.LIBRARY_LABEL</code>
+ * and shared among programs using the same index.
+ *
+ * An index can be saved to a file and loaded again.
+ * A JAR file whose size or time stamp has been changed,
+ * and a directory, are indexed again when the file is loaded.
+ * An object can be accessed by multiple threads after archives are added.
+ */
+public class LibraryIndex implements IClassProvider, Closeable {
+
+	/**
+	 * The version of the file format.
+	 * Files created by other versions are not loaded.
+	 */
+	public static final int FORMAT_VERSION = 1;
+
+	private static final int MAGIC = 0x534f4249; // "SOBI"
+	private static final String CLASS_SUFFIX = ".class";
+	private static final String META_INF = "META-INF/";
+	private static final String MODULE_INFO = "module-info";
+
+	private List<Archive> archives;
+	private HashMap<String, Archive> classes;
+	private ConcurrentHashMap<String, ClassInfo> loaded;
+	private ClassInfo.ParseProfile profile;
+
+	/**
+	 * Creates a new empty <code>LibraryIndex</code> instance.
+	 * Classes are loaded as stubs parsed by <code>ParseProfile.SIGNATURES</code>.
+	 */
+	public LibraryIndex() {
+		archives = new ArrayList<Archive>();
+		classes = new HashMap<String, Archive>(65536);
+		loaded = new ConcurrentHashMap<String, ClassInfo>();
+		profile = ClassInfo.ParseProfile.SIGNATURES;
+	}
+
+	/**
+	 * @param profile specifies information parsed when a class is loaded.
+	 * The profile should be specified before classes are loaded.
+	 */
+	public void setParseProfile(ClassInfo.ParseProfile profile) {
+		this.profile = profile;
+	}
+
+	/**
+	 * @return the profile to parse classes.
+	 */
+	public ClassInfo.ParseProfile getParseProfile() {
+		return profile;
+	}
+
+	/**
+	 * Adds class files in a JAR file or a directory to the index.
+	 * Nested archives are not indexed.
+	 * @param f specifies a JAR file or a directory.
+	 * The file is ignored if it has been already added.
+	 * @throws IOException if the file cannot be read.
+	 */
+	public void add(File f) throws IOException {
+		File file = f.getAbsoluteFile();
+		for (Archive a: archives) {
+			if (a.file.equals(file)) return;
+		}
+		Archive a = new Archive(file, file.isDirectory(), file.length(), file.lastModified());
+		a.classNames = listClasses(a);
+		register(a);
+	}
+
+	/**
+	 * Registers classes in an archive unless other archives include the same names.
+	 */
+	private void register(Archive a) {
+		archives.add(a);
+		for (String className: a.classNames) {
+			if (!classes.containsKey(className)) {
+				classes.put(className, a);
+			}
+		}
+	}
+
+	/**
+	 * @return class names included in an archive.
+	 */
+	private static List<String> listClasses(Archive a) throws IOException {
+		final List<String> names = new ArrayList<String>();
+		if (a.directory) {
+			final Path root = a.file.toPath();
+			Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+					String className = toClassName(root.relativize(file).toString().replace(File.separatorChar, '/'));
+					if (className != null) {
+						names.add(className);
+					}
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		} else {
+			try (java.util.zip.ZipFile zip = new java.util.zip.ZipFile(a.file)) {
+				for (Enumeration<? extends ZipEntry> it = zip.entries(); it.hasMoreElements(); ) {
+					ZipEntry entry = it.nextElement();
+					String className = entry.isDirectory() ? null : toClassName(entry.getName());
+					if (className != null) {
+						names.add(className);
+					}
+				}
+			}
+		}
+		return names;
+	}
+
+	/**
+	 * @param entryName is a path in an archive.
+	 * @return a class name for the path.
+	 * The return value is null if the path is not a class file.
+	 */
+	private static String toClassName(String entryName) {
+		if (!entryName.endsWith(CLASS_SUFFIX) || entryName.startsWith(META_INF)) return null;
+		String className = entryName.substring(0, entryName.length() - CLASS_SUFFIX.length());
+		if (className.equals(MODULE_INFO) || className.endsWith("/" + MODULE_INFO)) return null;
+		return className;
+	}
+
+	/**
+	 * @return the number of classes in the index.
+	 */
+	public int size() {
+		return classes.size();
+	}
+
+	/**
+	 * @param className is a class name including its package name.
+	 * @return true if the index includes the class.
+	 */
+	public boolean contains(String className) {
+		return classes.containsKey(className);
+	}
+
+	/**
+	 * @return the JAR files and directories in the index.
+	 */
+	public List<File> getArchives() {
+		List<File> files = new ArrayList<File>(archives.size());
+		for (Archive a: archives) {
+			files.add(a.file);
+		}
+		return files;
+	}
+
+	/**
+	 * Loads a class from its archive.
+	 * A class is parsed once and the same object is returned for subsequent calls.
+	 * @param className is a class name including its package name.
+	 * @return a <code>ClassInfo</code> object.
+	 * The return value is null if the index does not include the class,
+	 * the class file cannot be read, or the class file declares another class name.
+	 */
+	@Override
+	public ClassInfo getClassInfo(String className) {
+		ClassInfo c = loaded.get(className);
+		if (c != null) return c;
+
+		Archive a = classes.get(className);
+		if (a == null) return null;
+		String entryName = className + CLASS_SUFFIX;
+		try {
+			if (a.directory) {
+				File f = new File(a.file, entryName);
+				try (InputStream stream = new FileInputStream(f)) {
+					c = ClassInfo.createLibraryClass(f.getCanonicalPath(), stream, profile);
+				}
+			} else {
+				java.util.zip.ZipFile zip = open(a);
+				ZipEntry entry = zip.getEntry(entryName);
+				if (entry == null) return null;
+				try (InputStream stream = zip.getInputStream(entry)) {
+					c = ClassInfo.createLibraryClass(a.file.getAbsolutePath() + "/" + entryName, stream, profile);
+				}
+			}
+		} catch (IOException e) {
+			return null;
+		} catch (RuntimeException e) {
+			// A broken class file
+			return null;
+		}
+		if (!className.equals(c.getClassName())) return null;
+
+		ClassInfo another = loaded.putIfAbsent(className, c);
+		return (another != null) ? another : c;
+	}
+
+	/**
+	 * @return an opened JAR file.  The file is kept open until <code>close</code> is called.
+	 */
+	private synchronized java.util.zip.ZipFile open(Archive a) throws IOException {
+		if (a.zip == null) {
+			a.zip = new java.util.zip.ZipFile(a.file);
+		}
+		return a.zip;
+	}
+
+	/**
+	 * Closes JAR files opened to load classes.
+	 * The index can be still used; the files are opened again if necessary.
+	 */
+	@Override
+	public synchronized void close() {
+		for (Archive a: archives) {
+			if (a.zip != null) {
+				try {
+					a.zip.close();
+				} catch (IOException e) {
+					// ignore the error
+				}
+				a.zip = null;
+			}
+		}
+	}
+
+	/**
+	 * Writes the index to a file.
+	 * The file is written to a temporary file and then renamed
+	 * so that other processes never read an incomplete file.
+	 * @param f specifies a file.
+	 * @throws IOException
+	 */
+	public void save(File f) throws IOException {
+		File parent = f.getAbsoluteFile().getParentFile();
+		File temp = File.createTempFile(f.getName(), ".tmp", parent);
+		try {
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+				out.writeInt(MAGIC);
+				out.writeInt(FORMAT_VERSION);
+				out.writeInt(archives.size());
+				for (Archive a: archives) {
+					out.writeUTF(a.file.getPath());
+					out.writeBoolean(a.directory);
+					out.writeLong(a.length);
+					out.writeLong(a.lastModified);
+					out.writeInt(a.classNames.size());
+					for (String className: a.classNames) {
+						out.writeUTF(className);
+					}
+				}
+			}
+			try {
+				Files.move(temp.toPath(), f.toPath(), StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp.toPath(), f.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			if (temp.exists()) {
+				temp.delete();
+			}
+		}
+	}
+
+	/**
+	 * Reads an index from a file created by <code>save</code>.
+	 * Archives that have been modified after the index is saved are indexed again.
+	 * Archives that no longer exist are excluded from the index.
+	 * @param f specifies a file.
+	 * @return a new <code>LibraryIndex</code> object.
+	 * @throws IOException if the file cannot be read or it is created by another version.
+	 */
+	public static LibraryIndex load(File f) throws IOException {
+		LibraryIndex index = new LibraryIndex();
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f)))) {
+			if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+				throw new IOException("Unsupported index file " + f.getAbsolutePath());
+			}
+			int archiveCount = in.readInt();
+			for (int i=0; i<archiveCount; ++i) {
+				Archive a = new Archive(new File(in.readUTF()), in.readBoolean(), in.readLong(), in.readLong());
+				int classCount = in.readInt();
+				a.classNames = new ArrayList<String>(classCount);
+				for (int j=0; j<classCount; ++j) {
+					a.classNames.add(in.readUTF());
+				}
+				if (a.directory ? a.file.isDirectory() : a.file.isFile()) {
+					if (a.directory || a.length != a.file.length() || a.lastModified != a.file.lastModified()) {
+						a = new Archive(a.file, a.directory, a.file.length(), a.file.lastModified());
+						a.classNames = listClasses(a);
+					}
+					index.register(a);
+				}
+			}
+		}
+		return index;
+	}
+
+	private static class Archive {
+
+		private File file;
+		private boolean directory;
+		private long length;
+		private long lastModified;
+		private List<String> classNames;
+		private java.util.zip.ZipFile zip;
+
+		public Archive(File file, boolean directory, long length, long lastModified) {
+			this.file = file;
+			this.directory = directory;
+			this.length = length;
+			this.lastModified = lastModified;
+		}
+	}
+}
@@ -7,6 +7,7 @@ import gnu.trove.set.hash.TIntHashSet;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.tree.AbstractInsnNode;
@@ -20,34 +21,33 @@ import org.objectweb.asm.tree.analysis.AnalyzerException;
 import soba.core.method.CallSite;
 import soba.core.method.ControlDependence;
 import soba.core.method.DataDependence;
+import soba.core.method.DataFlowEdge;
 import soba.core.method.FieldAccess;
 import soba.core.method.OpcodeString;
 import soba.core.method.asm.DataFlowAnalyzer;
 import soba.core.method.asm.DataFlowInterpreter;
 import soba.core.signature.MethodSignatureReader;
+import soba.util.IntPairList;
 import soba.util.ObjectIdMap;
 import soba.util.graph.DirectedGraph;
 
 /**
  * This class represents a java method.
+ * Control-flow and data-flow of a method are analyzed once 
+ * when they are requested for the first time; 
+ * they can be requested by multiple threads.
  */
 public class MethodInfo {
 	
 	private ClassInfo ownerClass;
 	private MethodNode method;
+	private volatile boolean bodyLoaded;
 
-	private String returnType;
-	private String[] paramTypes;
-	private int[] paramIndex;
-	private int paramCount;
-	private boolean[] paramGeneric;
-	
-	private int[] lines;
-	private int maxLine;
-	private int minLine;
-	
-	private DataFlowAnalyzer analyzer;
-	private DataDependence dataDependence;
+	private volatile Params params; // null until a parameter is requested
+	private volatile Lines lines; // null until a line is requested
+	
+	private volatile Flow flow; // null if the method is not analyzed yet or the result is released
+	private static final AtomicReferenceFieldUpdater<MethodInfo, Flow> FLOW = AtomicReferenceFieldUpdater.newUpdater(MethodInfo.class, Flow.class, "flow");
 
 	/**
 	 * Creates a new <code>MethodInfo</code> instance.
@@ -55,8 +55,20 @@ public class MethodInfo {
 	 * @param method
 	 */
 	public MethodInfo(ClassInfo owner, MethodNode method) {
+		this(owner, method, true);
+	}
+	
+	/**
+	 * Creates a new <code>MethodInfo</code> instance.
+	 * @param owner is a <code>ClassInfo</code> object which declares this method.
+	 * @param method
+	 * @param bodyLoaded is false if the method node has only a method signature.
+	 * In that case, the method body is parsed by the owner class on demand.
+	 */
+	MethodInfo(ClassInfo owner, MethodNode method, boolean bodyLoaded) {
 		this.ownerClass = owner;
 		this.method = method;
+		this.bodyLoaded = bodyLoaded;
 	}
 	
 	/**
@@ -100,6 +112,15 @@ public class MethodInfo {
 	public boolean hasMethodBody() {
 		return (method.access & (Opcodes.ACC_ABSTRACT | Opcodes.ACC_NATIVE)) == 0;
 	}
+	
+	/**
+	 * @return true if the method has a method body and its instructions are available.
+	 * The return value is false for methods of a stub class, 
+	 * which is parsed by <code>ParseProfile.SIGNATURES</code> or <code>ParseProfile.HEADER</code>. 
+	 */
+	public boolean isBodyAvailable() {
+		return hasMethodBody() && ownerClass.isBodyAvailable();
+	}
 
 	/**
 	 * @return true if this is a library method.
@@ -162,7 +183,7 @@ public class MethodInfo {
 	 * @return the number of bytecode instructions in this method.
 	 */
 	public int getInstructionCount() {
-		return method.instructions.size();
+		return body().instructions.size();
 	}
 	
 	/**
@@ -170,7 +191,7 @@ public class MethodInfo {
 	 * @return AbstractInsnNode of instructionIndex
 	 */
 	public AbstractInsnNode getAbstractInsnNode(int instructionIndex) {
-		return method.instructions.get(instructionIndex);
+		return body().instructions.get(instructionIndex);
 	}
 	
 	/**
@@ -178,16 +199,14 @@ public class MethodInfo {
 	 * The method may return a generic type name such as "T". 
 	 */
 	public String getReturnType() {
-		extractParametersIfNecessary();
-		return returnType;
+		return params().returnType;
 	}
 	
 	/**
 	 * @return the number of parameters of this method.
 	 */
 	public int getParamCount() {
-		extractParametersIfNecessary();
-		return paramCount;
+		return params().paramTypes.length;
 	}
 	
 	/**
@@ -207,7 +226,7 @@ public class MethodInfo {
 	 * @return index value to accesss local variable table.
 	 */
 	public int getVariableTableIndexOfParamAt(int index) {
-		return this.paramIndex[index];
+		return params().paramIndex[index];
 	}
 	
 	/**
@@ -215,7 +234,8 @@ public class MethodInfo {
 	 * @return a position of the parameter corresponding to an index value for the local variable table.
 	 */
 	public int getParameterOrderingNumber(int localVarialbleIndex) {
-		for (int p = 0; p < this.paramCount; p++) {
+		int[] paramIndex = params().paramIndex;
+		for (int p = 0; p < paramIndex.length; p++) {
 			if (paramIndex[p] == localVarialbleIndex) {
 				return p;
 			}
@@ -228,7 +248,8 @@ public class MethodInfo {
 	 * @return true if a local variable specified by the index value is a parameter of this method.
 	 */
 	public boolean isParameterOrderingNumber(int localVarialbleIndex) {
-		for (int p = 0; p < this.paramCount; p++) {
+		int[] paramIndex = params().paramIndex;
+		for (int p = 0; p < paramIndex.length; p++) {
 			if (paramIndex[p] == localVarialbleIndex) {
 				return true;
 			}
@@ -245,7 +266,7 @@ public class MethodInfo {
 	 * For example, "A.B" is returned for a type "A<T>.B".  
 	 */
 	public String getParamType(int index) {
-		extractParametersIfNecessary();
+		String[] paramTypes = params().paramTypes;
 		if (index >= paramTypes.length) return null;
 		return paramTypes[index];
 	}
@@ -255,28 +276,42 @@ public class MethodInfo {
 	 * @return a formal parameter name. 
 	 */
 	public String getParamName(int index) {
-		if (method.localVariables == null) return null;
-		if (index >= method.localVariables.size()) return null;
+		MethodNode node = body();
+		if (node.localVariables == null) return null;
+		if (index >= node.localVariables.size()) return null;
 		int paramIndex = getVariableTableIndexOfParamAt(index);
-		for (int i=0; i<method.localVariables.size(); ++i) {
-			LocalVariableNode var = (LocalVariableNode)method.localVariables.get(i);
-			if (var.index == paramIndex && var.start == method.instructions.getFirst()) {
+		for (int i=0; i<node.localVariables.size(); ++i) {
+			LocalVariableNode var = (LocalVariableNode)node.localVariables.get(i);
+			if (var.index == paramIndex && var.start == node.instructions.getFirst()) {
 				return var.name;
 			}
 		}
 		return null;
 	}
 	
-	private void extractParametersIfNecessary() {
-		if (paramTypes != null) return;
-		
+	/**
+	 * @return the parameters extracted from the method descriptor.
+	 * Threads may extract the parameters at the same time;
+	 * since the result is immutable and published by a volatile field,
+	 * any of the equivalent results can be used.
+	 */
+	private Params params() {
+		Params p = params;
+		if (p == null) {
+			p = extractParameters();
+			params = p;
+		}
+		return p;
+	}
+	
+	private Params extractParameters() {
 		MethodSignatureReader reader = new MethodSignatureReader(method.desc);
 		int thisParam = isStatic() ? 0: 1;   
 		
 		// read type names
-		this.returnType = reader.getReturnType();
-		this.paramCount = reader.getParamCount() + thisParam;
-		String[] params = new String[this.paramCount];
+		String returnType = reader.getReturnType();
+		int paramCount = reader.getParamCount() + thisParam;
+		String[] params = new String[paramCount];
 		if (!isStatic()) {
 			if (getClassName() != null) {
 				params[0] = getClassName();
@@ -289,13 +324,13 @@ public class MethodInfo {
 		}
 		
 		// read generics flag
-		paramGeneric = new boolean[this.paramCount];
+		boolean[] paramGeneric = new boolean[paramCount];
 		for (int i=0; i<reader.getParamCount(); ++i) {
 			paramGeneric[i+thisParam] = reader.isGenericType(i);
 		}
 	
 		// compute index for local variable table
-		this.paramIndex = new int[params.length];
+		int[] paramIndex = new int[params.length];
 		int index = 0;
 		for (int i=0; i<params.length; ++i) {
 			paramIndex[i] = index;
@@ -308,35 +343,89 @@ public class MethodInfo {
 		}
 		
 		// finished
-		this.paramTypes = params;
+		return new Params(returnType, params, paramIndex, paramGeneric);
+	}
+	
+	/**
+	 * Parameters of a method.  An object is immutable.
+	 */
+	private static class Params {
+		private final String returnType;
+		private final String[] paramTypes;
+		private final int[] paramIndex;
+		@SuppressWarnings("unused")
+		private final boolean[] paramGeneric;
+		
+		public Params(String returnType, String[] paramTypes, int[] paramIndex, boolean[] paramGeneric) {
+			this.returnType = returnType;
+			this.paramTypes = paramTypes;
+			this.paramIndex = paramIndex;
+			this.paramGeneric = paramGeneric;
+		}
 	}
 
 	/**
 	 * @return a method node.
 	 */
 	public MethodNode getMethodNode() {
+		return body();
+	}
+	
+	/**
+	 * @return a method node including the method body.
+	 */
+	private MethodNode body() {
+		if (!bodyLoaded) {
+			loadBody();
+		}
 		return method;
 	}
 	
-	private void computeMinMaxLine() {
-		if (lines == null) {
-			TIntHashSet array = new TIntHashSet(method.instructions.size());
-			for (int i=0; i<method.instructions.size(); ++i) {
-				if (method.instructions.get(i).getType() == AbstractInsnNode.LINE) {
-					LineNumberNode node = (LineNumberNode)method.instructions.get(i);
-					array.add(node.line);
-				}
+	private synchronized void loadBody() {
+		if (!bodyLoaded) {
+			MethodNode node = ownerClass.parseMethodBody(method.name, method.desc);
+			if (node != null) {
+				method = node;
 			}
-			if (array.isEmpty()) {
-				lines = new int[0];
-				maxLine = 0;
-				minLine = 0;
-			} else {
-				lines = array.toArray();
-				Arrays.sort(lines);
-				maxLine = lines[lines.length - 1];
-				minLine = lines[0];
+			bodyLoaded = true;
+		}
+	}
+	
+	/**
+	 * @return the line numbers of the method.
+	 * The result is published in the same way as <code>params()</code>.
+	 */
+	private Lines computeMinMaxLine() {
+		Lines l = lines;
+		if (l == null) {
+			MethodNode node = body();
+			TIntHashSet array = new TIntHashSet(node.instructions.size());
+			for (int i=0; i<node.instructions.size(); ++i) {
+				if (node.instructions.get(i).getType() == AbstractInsnNode.LINE) {
+					LineNumberNode lineNode = (LineNumberNode)node.instructions.get(i);
+					array.add(lineNode.line);
+				}
 			}
+			int[] sorted = array.toArray();
+			Arrays.sort(sorted);
+			l = new Lines(sorted);
+			lines = l;
+		}
+		return l;
+	}
+	
+	/**
+	 * Line numbers of a method.  An object is immutable.
+	 */
+	private static class Lines {
+		private final int[] lines;
+		private final int maxLine;
+		private final int minLine;
+		
+		public Lines(int[] sortedLines) {
+			this.lines = sortedLines;
+			this.maxLine = (sortedLines.length > 0) ? sortedLines[sortedLines.length - 1] : 0;
+			this.minLine = (sortedLines.length > 0) ? sortedLines[0] : 0;
 		}
 	}
 	
@@ -346,8 +435,7 @@ public class MethodInfo {
 	 * 0 indicates the method has no line number information.
 	 */
 	public int getMaxLine() {
-		computeMinMaxLine();
-		return maxLine;
+		return computeMinMaxLine().maxLine;
 	}
 	
 	/**
@@ -355,16 +443,14 @@ public class MethodInfo {
 	 * 0 indicates the method has no line number information.
 	 */
 	public int getMinLine() {
-		computeMinMaxLine();
-		return minLine;
+		return computeMinMaxLine().minLine;
 	}
 	
 	/**
 	 * @return an array which is filled with the numbers from minimum line to maximum line.
 	 */
 	public int[] getLineNumbers() {
-		computeMinMaxLine();
-		return lines;
+		return computeMinMaxLine().lines;
 	}
 
 	/**
@@ -372,9 +458,10 @@ public class MethodInfo {
 	 * @return the line number including a specified instruction. 
 	 */
 	public int getLine(int instructionIndex) {
+		MethodNode node = body();
 		for (int i=instructionIndex; i>=0; --i) {
-			if (method.instructions.get(i).getType() == AbstractInsnNode.LINE) {
-				return ((LineNumberNode)method.instructions.get(i)).line;
+			if (node.instructions.get(i).getType() == AbstractInsnNode.LINE) {
+				return ((LineNumberNode)node.instructions.get(i)).line;
 			}
 		}
 		return 0;
@@ -385,11 +472,12 @@ public class MethodInfo {
 	 * @return an array of instruction index values that consist of a specified line.
 	 */
 	public int[] getInstructions(int line) {
+		MethodNode node = body();
 		TIntArrayList lineInstructions = new TIntArrayList();
 		boolean inside = false;
-		for (int i=0; i<method.instructions.size(); ++i) {
-			if (method.instructions.get(i).getType() == AbstractInsnNode.LINE) {
-				inside = ((LineNumberNode)method.instructions.get(i)).line == line;
+		for (int i=0; i<node.instructions.size(); ++i) {
+			if (node.instructions.get(i).getType() == AbstractInsnNode.LINE) {
+				inside = ((LineNumberNode)node.instructions.get(i)).line == line;
 			}
 			if (inside) lineInstructions.add(i);
 		}
@@ -401,8 +489,9 @@ public class MethodInfo {
 	 * @return a list of <code>CallSite</code>.
 	 */
 	public List<CallSite> getCallSites() {
-		List<CallSite> callsites = new ArrayList<CallSite>(method.instructions.size());
-		for (int i=0; i<method.instructions.size(); ++i) {
+		MethodNode node = body();
+		List<CallSite> callsites = new ArrayList<CallSite>(node.instructions.size());
+		for (int i=0; i<node.instructions.size(); ++i) {
 			CallSite c = getCallSite(i);
 			if (c != null) callsites.add(c);
 		}
@@ -416,8 +505,9 @@ public class MethodInfo {
 	 * @return a <code>CallSite</code> object for an instruction.
 	 */
 	public CallSite getCallSite(final int instructionIndex) {
-		if (method.instructions.get(instructionIndex).getType() == AbstractInsnNode.METHOD_INSN) {
-			MethodInsnNode m = (MethodInsnNode)method.instructions.get(instructionIndex);
+		MethodNode node = body();
+		if (node.instructions.get(instructionIndex).getType() == AbstractInsnNode.METHOD_INSN) {
+			MethodInsnNode m = (MethodInsnNode)node.instructions.get(instructionIndex);
 			return new CallSite(this, instructionIndex, m.owner, m.name, m.desc, getInvokeType(m));
 		} else {
 			return null;
@@ -436,9 +526,10 @@ public class MethodInfo {
 	 * @return a list of <code>FieldAccess</code>.
 	 */
 	public List<FieldAccess> getFieldAccesses() {
+		MethodNode node = body();
 		List<FieldAccess> fields = new ArrayList<FieldAccess>(32);
-		for (int i=0; i<method.instructions.size(); ++i) {
-			if (method.instructions.get(i).getType() == AbstractInsnNode.FIELD_INSN) {
+		for (int i=0; i<node.instructions.size(); ++i) {
+			if (node.instructions.get(i).getType() == AbstractInsnNode.FIELD_INSN) {
 				FieldAccess fieldAccess = getFieldAccess(i);
 				if (fieldAccess != null) { 
 					fields.add(fieldAccess);
@@ -455,9 +546,10 @@ public class MethodInfo {
 	 * @return a <FieldAccess> object.
 	 */
 	public FieldAccess getFieldAccess(final int instructionIndex) {
-		assert method.instructions.get(instructionIndex).getType() == AbstractInsnNode.FIELD_INSN;
+		MethodNode node = body();
+		assert node.instructions.get(instructionIndex).getType() == AbstractInsnNode.FIELD_INSN;
 		
-		final FieldInsnNode f = (FieldInsnNode)method.instructions.get(instructionIndex);
+		final FieldInsnNode f = (FieldInsnNode)node.instructions.get(instructionIndex);
 		switch (f.getOpcode()) {
 		case Opcodes.PUTFIELD:
 			return FieldAccess.createPutField(f.owner, f.name, f.desc, false);
@@ -477,9 +569,10 @@ public class MethodInfo {
 	 * @return an array of index values for return instructions.
 	 */
 	public int[] getReturnInstructions() {
+		MethodNode node = body();
 		TIntSet returns = new TIntHashSet();
-		for (int i=0; i<method.instructions.size(); i++) {
-			AbstractInsnNode ain = method.instructions.get(i);
+		for (int i=0; i<node.instructions.size(); i++) {
+			AbstractInsnNode ain = node.instructions.get(i);
 			if (OpcodeString.isReturnOperation(ain)) {
 				returns.add(i);
 			}
@@ -492,23 +585,21 @@ public class MethodInfo {
 	 * The object has information about data dependencies.
 	 */
 	public DataDependence getDataDependence() {
-		computeFlow();
-		return dataDependence;
+		return getFlow().dataDependence;
 	}
 	
 	/**
 	 * @return a control dependence graph.
 	 */
 	public DirectedGraph getControlDependence() {
-		return ControlDependence.getDependence(getInstructionCount(), getControlFlow());
+		return getControlDependence(getFlow());
 	}
 	
 	/**
 	 * @return a control-flow graph.
 	 */
 	public DirectedGraph getControlFlow() {
-		computeFlow();
-		return new DirectedGraph(getInstructionCount(), analyzer.getNormalControlFlow());
+		return getControlFlow(getFlow());
 	}
 	
 	/**
@@ -516,26 +607,200 @@ public class MethodInfo {
 	 * The graph assumes that every instruction in a try block may throw an exception.
 	 */
 	public DirectedGraph getConservativeControlFlow() {
-		computeFlow();
-		return new DirectedGraph(getInstructionCount(), analyzer.getConservativeControlFlow());
+		return getConservativeControlFlow(getFlow());
+	}
+	
+	/**
+	 * The following methods translate a specified analysis result into graphs.
+	 * Unlike the public methods, they do not record an access to a <code>BoundedAnalysisCache</code>,
+	 * so that an <code>AnalysisCache</code> can write the result of a method it has just analyzed.
+	 */
+	DirectedGraph getControlDependence(Flow f) {
+		if (f.controlDependence != null) {
+			return new DirectedGraph(getInstructionCount(), copy(f.controlDependence));
+		}
+		return ControlDependence.getDependence(getInstructionCount(), getControlFlow(f));
+	}
+	
+	DirectedGraph getControlFlow(Flow f) {
+		return new DirectedGraph(getInstructionCount(), copy(f.normalControlFlow));
+	}
+	
+	DirectedGraph getConservativeControlFlow(Flow f) {
+		return new DirectedGraph(getInstructionCount(), copy(f.conservativeControlFlow));
 	}
 	
-	private void computeFlow() {
-		if (analyzer == null) {
-			ObjectIdMap<AbstractInsnNode> instructions = new ObjectIdMap<AbstractInsnNode>(method.instructions.size());
-			for (int i=0; i<method.instructions.size(); ++i) {
-				instructions.add(method.instructions.get(i));
+	/**
+	 * @return a copy of an edge list, since <code>DirectedGraph</code> modifies the list. 
+	 */
+	private static IntPairList copy(IntPairList edges) {
+		IntPairList result = new IntPairList(edges.size());
+		result.addAll(edges);
+		return result;
+	}
+	
+	/**
+	 * @return the analysis result of the method.
+	 * The result is restored from the analysis cache of the class or computed
+	 * if it is not available, e.g. it has been released by a <code>BoundedAnalysisCache</code>.
+	 */
+	private Flow getFlow() {
+		BoundedAnalysisCache bounded = ownerClass.getBoundedAnalysisCache();
+		Flow f = flow;
+		if (f != null) {
+			if (bounded != null) bounded.hit(f);
+			return f;
+		}
+		AnalysisCache cache = ownerClass.getAnalysisCache();
+		if (cache != null) {
+			cache.prepare(ownerClass);
+			if (bounded != null) {
+				// The other methods in the class also have their results
+				for (MethodInfo m: ownerClass.getMethods()) {
+					Flow other = m.flow;
+					if (m != this && other != null) bounded.add(m, other, m.estimateSize(other));
+				}
 			}
-			instructions.freeze();
+		}
+		f = analyzeFlow();
+		if (bounded != null) bounded.miss(this, f, estimateSize(f));
+		return f;
+	}
+	
+	/**
+	 * Analyzes control-flow and data-flow of the method without a cache.
+	 * This method does nothing if the result is already available.
+	 * Since the result is published by a volatile field, 
+	 * threads calling <code>getDataDependence</code> etc. always see a complete result.
+	 * @return the analysis result.
+	 */
+	synchronized Flow analyzeFlow() {
+		Flow f = flow;
+		if (f == null) {
+			MethodNode node = body();
+			ObjectIdMap<AbstractInsnNode> instructions = createInstructionMap(node);
 			DataFlowInterpreter interpreter = new DataFlowInterpreter(instructions);
-			analyzer = new DataFlowAnalyzer(interpreter);
+			DataFlowAnalyzer analyzer = new DataFlowAnalyzer(interpreter);
+			DataDependence dataDependence = null;
 			try {
-				analyzer.analyze(method.name, method);
+				analyzer.analyze(node.name, node);
 				dataDependence = new DataDependence(instructions, analyzer);
 			} catch (AnalyzerException e) {
 				System.err.println(e.getMessage());
 			}
+			f = new Flow(analyzer.getNormalControlFlow(), analyzer.getConservativeControlFlow(), null, dataDependence);
+			flow = f;
+		}
+		return f;
+	}
+	
+	/**
+	 * Sets the result of a previous analysis restored from a cache.
+	 * @param normalFlow specifies edges of a control-flow graph.
+	 * @param conservativeFlow specifies edges of a conservative control-flow graph.
+	 * @param controlDependence specifies edges of a control dependence graph.
+	 * @param operandCounts specifies the number of operands used by each instruction.
+	 * If null, data dependence is unavailable because the analysis failed.
+	 * @param dataFlowEdges specifies data flow edges sorted by their destination instructions.
+	 */
+	synchronized void setFlow(IntPairList normalFlow, IntPairList conservativeFlow, IntPairList controlDependence, int[] operandCounts, List<DataFlowEdge> dataFlowEdges) {
+		if (flow == null) {
+			DataDependence dataDependence = null;
+			if (operandCounts != null) {
+				MethodNode node = body();
+				dataDependence = new DataDependence(createInstructionMap(node), node, operandCounts, dataFlowEdges);
+			}
+			flow = new Flow(normalFlow, conservativeFlow, controlDependence, dataDependence);
+		}
+	}
+	
+	/**
+	 * Discards the analysis result of the method.
+	 * The result is computed again when it is requested.
+	 * A thread that has obtained the result can still use it.
+	 * @param f specifies the result to be discarded.
+	 * The method does nothing if the method holds another result,
+	 * e.g. a result computed again after <code>f</code> was evicted.
+	 */
+	void releaseFlow(Flow f) {
+		FLOW.compareAndSet(this, f, null);
+	}
+	
+	/**
+	 * @return true if the analysis result is held by the method.
+	 */
+	boolean isFlowAvailable() {
+		return flow != null;
+	}
+	
+	/**
+	 * @return an approximate number of bytes used by the analysis result.
+	 */
+	private long estimateSize(Flow f) {
+		long size = 64 + 8L * (f.normalControlFlow.size() + f.conservativeControlFlow.size());
+		if (f.controlDependence != null) {
+			size += 8L * f.controlDependence.size();
+		}
+		DataDependence dd = f.dataDependence;
+		if (dd != null) {
+			int instructions = getInstructionCount();
+			// Edge arrays, their permutation, operand counts and an instruction map
+			size += dd.getEdgeList().getEstimatedBytes() + 4L * dd.getEdges().size() + 24L * instructions;
+			if (instructions > 0 && dd.getFrame(0) != null) {
+				// A frame and its values for each instruction
+				MethodNode node = body();
+				size += (long)instructions * (48 + 24L * (node.maxLocals + node.maxStack));
+			}
+		}
+		return size;
+	}
+	
+	/**
+	 * The analysis result of a method.
+	 * An object is immutable so that it can be replaced and released atomically,
+	 * except for a flag recording accesses for <code>BoundedAnalysisCache</code>.
+	 */
+	static class Flow {
+		private IntPairList normalControlFlow;
+		private IntPairList conservativeControlFlow;
+		private IntPairList controlDependence; // null if it is not restored from a cache
+		private DataDependence dataDependence; // null if the analysis failed
+		private volatile boolean referenced;
+		
+		public Flow(IntPairList normalControlFlow, IntPairList conservativeControlFlow, IntPairList controlDependence, DataDependence dataDependence) {
+			this.normalControlFlow = normalControlFlow;
+			this.conservativeControlFlow = conservativeControlFlow;
+			this.controlDependence = controlDependence;
+			this.dataDependence = dataDependence;
+		}
+
+		void markReferenced() {
+			if (!referenced) referenced = true; // Avoid writing a shared cache line on every access
+		}
+
+		void clearReferenced() {
+			referenced = false;
+		}
+
+		boolean isReferenced() {
+			return referenced;
+		}
+
+		/**
+		 * @return the data dependence of the method, or null if the analysis failed.
+		 */
+		DataDependence getDataDependence() {
+			return dataDependence;
+		}
+	}
+	
+	private static ObjectIdMap<AbstractInsnNode> createInstructionMap(MethodNode node) {
+		ObjectIdMap<AbstractInsnNode> instructions = new ObjectIdMap<AbstractInsnNode>(node.instructions.size());
+		for (int i=0; i<node.instructions.size(); ++i) {
+			instructions.add(node.instructions.get(i));
 		}
+		instructions.freeze();
+		return instructions;
 	}
 	
 	/**
@@ -550,7 +815,7 @@ public class MethodInfo {
 	 * @return a string representation of the specified instruction.
 	 */
 	public String getInstructionString(final int instructionIndex) {
-		return OpcodeString.getInstructionString(method, instructionIndex);
+		return OpcodeString.getInstructionString(body(), instructionIndex);
 	}
 	
 	/**
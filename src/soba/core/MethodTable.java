@@ -0,0 +1,83 @@
+package soba.core;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * This class is a hash table of methods identified by their names and descriptors.
+ * Methods are indexed by their names so that a lookup does not create a new string.
+ * An object can be read by multiple threads after all methods are added.
+ */
+class MethodTable {
+
+	private HashMap<String, MethodInfo[]> methods;
+	private int size;
+
+	/**
+	 * Creates a new empty <code>MethodTable</code> instance.
+	 * @param capacity specifies the expected number of methods.
+	 */
+	public MethodTable(int capacity) {
+		methods = new HashMap<String, MethodInfo[]>(Math.max(4, capacity * 4 / 3 + 1));
+	}
+
+	/**
+	 * Adds a method to the table.
+	 * @param m is a method.
+	 * @return true if the method is added.
+	 * The return value is false if the table already has a method
+	 * with the same name and descriptor.
+	 */
+	public boolean add(MethodInfo m) {
+		MethodInfo[] overloads = methods.get(m.getMethodName());
+		if (overloads == null) {
+			methods.put(m.getMethodName(), new MethodInfo[] {m});
+		} else {
+			for (MethodInfo another: overloads) {
+				if (another.getDescriptor().equals(m.getDescriptor())) {
+					return false;
+				}
+			}
+			overloads = Arrays.copyOf(overloads, overloads.length + 1);
+			overloads[overloads.length - 1] = m;
+			methods.put(m.getMethodName(), overloads);
+		}
+		size++;
+		return true;
+	}
+
+	/**
+	 * Adds methods to the table.
+	 * A method is ignored if the table already has a method with the same signature.
+	 */
+	public void addAll(Iterable<MethodInfo> methods) {
+		for (MethodInfo m: methods) {
+			add(m);
+		}
+	}
+
+	/**
+	 * @param methodName is a method name.
+	 * @param methodDesc is a method descriptor.
+	 * @return a <code>MethodInfo</code> object.
+	 * The return value is null if the table does not include the method.
+	 */
+	public MethodInfo find(String methodName, String methodDesc) {
+		MethodInfo[] overloads = methods.get(methodName);
+		if (overloads != null) {
+			for (MethodInfo m: overloads) {
+				if (m.getDescriptor().equals(methodDesc)) {
+					return m;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return the number of methods in the table.
+	 */
+	public int size() {
+		return size;
+	}
+}
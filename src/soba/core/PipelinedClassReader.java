@@ -0,0 +1,243 @@
+package soba.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import soba.util.files.FileUtil;
+import soba.util.files.IClassList;
+import soba.util.files.IClassListCallback;
+
+/**
+ * This class loads classes in three stages.
+ * I/O threads read class files from class lists,
+ * worker threads parse the files into <code>ClassInfo</code> objects,
+ * and the caller thread receives the objects in the order of the class lists.
+ * Hence, the caller observes the same sequence of classes as a sequential loader.
+ */
+class PipelinedClassReader {
+
+	private static final int QUEUE_CAPACITY_PER_THREAD = 64;
+
+	private static final Item END = new Item(null, null, null, false);
+
+	private IClassList[] lists;
+	private IClassFilter filter;
+	private int parallelism;
+	private ProgramOptions options;
+	private ClassInfoPool pool;
+
+	/**
+	 * Creates a new <code>PipelinedClassReader</code> instance.
+	 * @param lists specifies class lists.
+	 * @param filter specifies classes to be loaded.
+	 * <code>IClassFilter.loadClass</code> is called by I/O threads.
+	 * <code>IClassFilter.acceptClass</code> is not called by this object.
+	 * @param options specifies the number of worker threads 
+	 * and information parsed by worker threads.
+	 * @param pool specifies a pool of shared classes.  It may be null.
+	 */
+	public PipelinedClassReader(IClassList[] lists, IClassFilter filter, ProgramOptions options, ClassInfoPool pool) {
+		this.lists = lists;
+		this.filter = filter;
+		this.parallelism = Math.max(1, options.getParallelism());
+		this.options = options;
+		this.pool = pool;
+	}
+
+	/**
+	 * Reads all the classes in the class lists.
+	 * If the caller thread is interrupted, this method stops reading classes
+	 * and returns with the interrupt status of the thread.
+	 * @param receiver receives the loaded classes in the order of the class lists.
+	 */
+	public void read(IReceiver receiver) {
+		ExecutorService readers = Executors.newFixedThreadPool(Math.min(parallelism, Math.max(1, lists.length)), new DaemonThreadFactory("soba-reader"));
+		ExecutorService parsers = Executors.newFixedThreadPool(parallelism, new DaemonThreadFactory("soba-parser"));
+		try {
+			// Readers are started in the order of the lists.
+			// Since the executor runs the tasks in FIFO order,
+			// the list consumed by the caller thread is always being read or finished.
+			List<BlockingQueue<Item>> queues = new ArrayList<>(lists.length);
+			for (IClassList list: lists) {
+				BlockingQueue<Item> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY_PER_THREAD * parallelism);
+				queues.add(queue);
+				if (list != null) {
+					readers.execute(new ReaderTask(list, queue, parsers));
+				}
+			}
+			for (int i=0; i<lists.length; ++i) {
+				if (lists[i] == null) continue;
+				BlockingQueue<Item> queue = queues.get(i);
+				for (Item item = queue.take(); item != END; item = queue.take()) {
+					if (item.filtered) {
+						receiver.filtered(item.name);
+					} else if (item.error != null) {
+						receiver.reportError(item.name, item.error);
+					} else {
+						try {
+							receiver.accept(item.name, item.parsed.get());
+						} catch (ExecutionException e) {
+							Throwable cause = e.getCause();
+							if (cause instanceof Exception) {
+								receiver.reportError(item.name, (Exception)cause);
+							} else if (cause instanceof Error) {
+								throw (Error)cause;
+							} else {
+								receiver.reportError(item.name, e);
+							}
+						}
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			readers.shutdownNow();
+			parsers.shutdownNow();
+		}
+	}
+
+	/**
+	 * A task to read a class list.
+	 */
+	private class ReaderTask implements Runnable, IClassListCallback {
+
+		private IClassList list;
+		private BlockingQueue<Item> queue;
+		private ExecutorService parsers;
+
+		public ReaderTask(IClassList list, BlockingQueue<Item> queue, ExecutorService parsers) {
+			this.list = list;
+			this.queue = queue;
+			this.parsers = parsers;
+		}
+
+		@Override
+		public void run() {
+			try {
+				list.process(this);
+			} catch (RuntimeException e) {
+				put(new Item(list.toString(), null, e, false));
+			} finally {
+				put(END);
+			}
+		}
+
+		@Override
+		public boolean isTarget(String name) {
+			return name.endsWith(".class");
+		}
+
+		@Override
+		public void process(final String name, InputStream stream) throws IOException {
+			if (filter == null || filter.loadClass(name)) {
+				final byte[] bytes = FileUtil.readFully(stream);
+				final String label = list.getLabel();
+				final ClassInfo.ParseProfile profile = options.getParseProfile(label);
+				Future<ClassInfo> parsed = parsers.submit(new Callable<ClassInfo>() {
+					@Override
+					public ClassInfo call() throws Exception {
+						return ClassListReader.parse(pool, name, bytes, label, profile);
+					}
+				});
+				if (!put(new Item(name, parsed, null, false))) {
+					throw new InterruptedIOException();
+				}
+			} else {
+				if (!put(new Item(name, null, null, true))) {
+					throw new InterruptedIOException();
+				}
+			}
+		}
+
+		@Override
+		public boolean reportError(String name, Exception e) {
+			put(new Item(name, null, e, false));
+			return Thread.currentThread().isInterrupted();
+		}
+
+		/**
+		 * @return false if the reader is interrupted.
+		 */
+		private boolean put(Item item) {
+			if (Thread.currentThread().isInterrupted()) return false;
+			try {
+				queue.put(item);
+				return true;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * An entry of a class list.
+	 */
+	private static class Item {
+
+		private String name;
+		private Future<ClassInfo> parsed;
+		private Exception error;
+		private boolean filtered;
+
+		public Item(String name, Future<ClassInfo> parsed, Exception error, boolean filtered) {
+			this.name = name;
+			this.parsed = parsed;
+			this.error = error;
+			this.filtered = filtered;
+		}
+	}
+
+	private static class DaemonThreadFactory implements ThreadFactory {
+
+		private String name;
+		private int count;
+
+		public DaemonThreadFactory(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public synchronized Thread newThread(Runnable r) {
+			Thread t = new Thread(r, name + "-" + (++count));
+			t.setDaemon(true);
+			return t;
+		}
+	}
+
+	/**
+	 * Receives classes from <code>PipelinedClassReader</code>.
+	 * The methods are called by the thread calling <code>read</code>.
+	 */
+	public interface IReceiver {
+
+		/**
+		 * @param name is a class file name.
+		 * @param c is a loaded class.
+		 */
+		public void accept(String name, ClassInfo c);
+
+		/**
+		 * @param name is a class file name rejected by <code>IClassFilter.loadClass</code>.
+		 */
+		public void filtered(String name);
+
+		/**
+		 * @param name is a class file name.
+		 * @param e is an exception occurred during the process.
+		 */
+		public void reportError(String name, Exception e);
+	}
+}
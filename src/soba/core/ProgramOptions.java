@@ -0,0 +1,206 @@
+package soba.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class specifies how a <code>JavaProgram</code> object loads classes.
+ * An object should not be modified after it is passed to a <code>JavaProgram</code>.
+ */
+public class ProgramOptions {
+
+	private int parallelism;
+	private ClassInfo.ParseProfile profile;
+	private ClassInfo.ParseProfile libraryProfile;
+	private AnalysisCache analysisCache;
+	private BoundedAnalysisCache boundedAnalysisCache;
+	private ClassInfoPool pool;
+	private IClassProvider classProvider;
+	private boolean frozenHierarchy;
+
+	/**
+	 * Creates a new <code>ProgramOptions</code> instance with the default settings.
+	 * The default settings load classes by a single thread.
+	 */
+	public ProgramOptions() {
+		parallelism = 1;
+		profile = ClassInfo.ParseProfile.FULL;
+	}
+
+	/**
+	 * Enables pipelined class loading.
+	 * Class files are read by I/O threads, parsed by worker threads,
+	 * and registered to a program in the order of the class lists.
+	 * @param threads specifies the number of threads parsing class files.
+	 * A value less than 2 disables the pipelined loading.
+	 */
+	public void setParallelism(int threads) {
+		this.parallelism = threads;
+	}
+
+	/**
+	 * @return the number of threads parsing class files.
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * @return true if classes are loaded by multiple threads.
+	 */
+	public boolean isParallel() {
+		return parallelism > 1;
+	}
+
+	/**
+	 * @param profile specifies information parsed when classes are loaded.
+	 * <code>ParseProfile.LAZY</code> parses method bodies on demand.
+	 */
+	public void setParseProfile(ClassInfo.ParseProfile profile) {
+		this.profile = profile;
+	}
+
+	/**
+	 * @return the profile to parse classes.
+	 */
+	public ClassInfo.ParseProfile getParseProfile() {
+		return profile;
+	}
+
+	/**
+	 * Specifies a profile to parse library classes,
+	 * i.e. classes in class lists labeled <code>ClassInfo.LIBRARY_LABEL</code>.
+	 * <code>ParseProfile.SIGNATURES</code> and <code>ParseProfile.HEADER</code>
+	 * load library classes as lightweight stubs without method bodies.
+	 * @param profile specifies information parsed for library classes.
+	 * If null, library classes are parsed by the profile for the other classes.
+	 */
+	public void setLibraryParseProfile(ClassInfo.ParseProfile profile) {
+		this.libraryProfile = profile;
+	}
+
+	/**
+	 * @return the profile to parse library classes.
+	 * The return value is null if the profile is not specified.
+	 */
+	public ClassInfo.ParseProfile getLibraryParseProfile() {
+		return libraryProfile;
+	}
+
+	/**
+	 * @param label is the label of a class list.
+	 * @return the profile to parse classes in the class list.
+	 */
+	public ClassInfo.ParseProfile getParseProfile(String label) {
+		if (libraryProfile != null && ClassInfo.LIBRARY_LABEL.equals(label)) {
+			return libraryProfile;
+		} else {
+			return profile;
+		}
+	}
+
+	/**
+	 * @param cache specifies a cache for the analysis results of loaded classes.
+	 * If null (default), methods are always analyzed.
+	 */
+	public void setAnalysisCache(AnalysisCache cache) {
+		this.analysisCache = cache;
+	}
+
+	/**
+	 * @return the cache for the analysis results.
+	 */
+	public AnalysisCache getAnalysisCache() {
+		return analysisCache;
+	}
+
+	/**
+	 * @param cache specifies a budget for the analysis results held by methods of loaded classes.
+	 * If null (default), methods keep their results for the lifetime of the program.
+	 */
+	public void setBoundedAnalysisCache(BoundedAnalysisCache cache) {
+		this.boundedAnalysisCache = cache;
+	}
+
+	/**
+	 * @return the budget for the analysis results.
+	 */
+	public BoundedAnalysisCache getBoundedAnalysisCache() {
+		return boundedAnalysisCache;
+	}
+
+	/**
+	 * @param pool specifies a pool of classes shared among programs.
+	 * A program loads a class from the pool if the pool has the same bytecode.
+	 * If null (default), every class is parsed.
+	 */
+	public void setClassInfoPool(ClassInfoPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * @return the pool of classes.
+	 */
+	public ClassInfoPool getClassInfoPool() {
+		return pool;
+	}
+
+	/**
+	 * @param provider specifies a source of library classes that are not loaded,
+	 * e.g. a <code>LibraryIndex</code> object.
+	 * The class hierarchy of a program loads classes from the provider on demand.
+	 * If null (default), classes are loaded only from the class lists.
+	 * @see ClassHierarchy#setClassProvider(IClassProvider)
+	 */
+	public void setClassProvider(IClassProvider provider) {
+		this.classProvider = provider;
+	}
+
+	/**
+	 * Adds a source of library classes after the providers already specified.
+	 * A class is loaded from the first provider having the class,
+	 * e.g. a <code>JdkSnapshot</code> and then a <code>LibraryIndex</code>.
+	 * @param provider specifies a provider.
+	 * @see ClassProviderChain
+	 */
+	public void addClassProvider(IClassProvider provider) {
+		if (classProvider == null) {
+			classProvider = provider;
+		} else if (classProvider instanceof ClassProviderChain) {
+			List<IClassProvider> providers = new ArrayList<IClassProvider>(((ClassProviderChain)classProvider).getProviders());
+			providers.add(provider);
+			classProvider = new ClassProviderChain(providers.toArray(new IClassProvider[providers.size()]));
+		} else {
+			classProvider = new ClassProviderChain(classProvider, provider);
+		}
+	}
+
+	/**
+	 * @return the provider of library classes.
+	 */
+	public IClassProvider getClassProvider() {
+		return classProvider;
+	}
+
+	/**
+	 * Specifies whether a program freezes its class hierarchy after classes are loaded.
+	 * A frozen hierarchy caches resolved calls and fields, 
+	 * so that <code>CallGraph</code> and <code>VTAResolver</code> resolve 
+	 * multiple call sites of the same method once.
+	 * Classes are no longer loaded from a class provider on demand,
+	 * and the hierarchy can be modified only through <code>JavaProgram.updateClass</code> 
+	 * and <code>JavaProgram.removeClass</code>, which keep the cached results of unaffected types.
+	 * @param frozen is true to freeze the hierarchy.  The default is false.
+	 * @see ClassHierarchy#freeze()
+	 */
+	public void setFrozenHierarchy(boolean frozen) {
+		this.frozenHierarchy = frozen;
+	}
+
+	/**
+	 * @return true if a program freezes its class hierarchy after classes are loaded.
+	 */
+	public boolean isFrozenHierarchy() {
+		return frozenHierarchy;
+	}
+}
@@ -0,0 +1,214 @@
+package soba.core;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.set.hash.TIntHashSet;
+
+/**
+ * This class answers whether a type is a sub-type of another type in constant time.
+ * A type T is a sub-type of S if T is reachable from S through sub-type relationships
+ * (including T == S).
+ *
+ * Most relationships are class-to-super-class relationships forming a tree.
+ * The tree is labeled by pre/post-order numbers so that
+ * an ancestor-descendant relationship is checked by comparing the numbers.
+ * The other relationships (e.g. interfaces) are represented by bit sets:
+ * each type has a set of ancestors that have sub-types outside of their tree.
+ * The same bit sets are shared among types.
+ */
+class SubtypeIndex {
+
+	private TypeIndex types;
+	private boolean acyclic;
+	private int[] pre;
+	private int[] post;
+	private int[] bitIndex;
+	private BitSet[] ancestors;
+
+	/**
+	 * Creates a new <code>SubtypeIndex</code> instance for a class hierarchy.
+	 */
+	public SubtypeIndex(TypeIndex types) {
+		this.types = types;
+		int n = types.getTypeCount();
+
+		// A class is a tree node of its super class.
+		int[] treeParent = new int[n];
+		Arrays.fill(treeParent, -1);
+		int[] indegree = new int[n];
+		for (int p=0; p<n; ++p) {
+			for (int i=types.getSubtypeStart(p); i<types.getSubtypeEnd(p); ++i) {
+				int c = types.getSubtype(i);
+				if (types.getSuperClass(c) == p) treeParent[c] = p;
+				indegree[c]++;
+			}
+		}
+		// Types having sub-types outside of the tree
+		boolean[] useBit = new boolean[n];
+		for (int p=0; p<n; ++p) {
+			for (int i=types.getSubtypeStart(p); i<types.getSubtypeEnd(p); ++i) {
+				if (treeParent[types.getSubtype(i)] != p) {
+					// Tree ancestors also reach the sub-types
+					for (int t = p; t >= 0 && !useBit[t]; t = treeParent[t]) {
+						useBit[t] = true;
+					}
+					break;
+				}
+			}
+		}
+
+		// Sort types in a topological order
+		TIntArrayList order = new TIntArrayList(n);
+		for (int t=0; t<n; ++t) {
+			if (indegree[t] == 0) order.add(t);
+		}
+		for (int pos=0; pos<order.size(); ++pos) {
+			int p = order.get(pos);
+			for (int i=types.getSubtypeStart(p); i<types.getSubtypeEnd(p); ++i) {
+				int c = types.getSubtype(i);
+				if (--indegree[c] == 0) order.add(c);
+			}
+		}
+		this.acyclic = (order.size() == n);
+		if (!acyclic) {
+			// A broken hierarchy is handled by traversal
+			return;
+		}
+
+		computeIntervals(treeParent);
+
+		// Assign bits in the pre-order so that the bits for root types are small.
+		this.bitIndex = new int[n];
+		Arrays.fill(bitIndex, -1);
+		int bitCount = 0;
+		int[] typeByPre = new int[n];
+		for (int t=0; t<n; ++t) {
+			typeByPre[pre[t]] = t;
+		}
+		for (int i=0; i<n; ++i) {
+			int t = typeByPre[i];
+			if (useBit[t]) {
+				bitIndex[t] = bitCount++;
+			}
+		}
+
+		// Propagate ancestors in the topological order
+		this.ancestors = new BitSet[n];
+		BitSet[] work = new BitSet[n];
+		boolean[] owned = new boolean[n];
+		HashMap<BitSet, BitSet> sharedSets = new HashMap<BitSet, BitSet>();
+		BitSet empty = new BitSet(0);
+		sharedSets.put(empty, empty);
+		for (int pos=0; pos<n; ++pos) {
+			int t = order.get(pos);
+			BitSet s = work[t];
+			work[t] = null;
+			if (bitIndex[t] >= 0) {
+				if (s == null) s = new BitSet(bitIndex[t] + 1);
+				else if (!owned[t]) s = (BitSet)s.clone();
+				s.set(bitIndex[t]);
+			} else if (s == null) {
+				s = empty;
+			}
+			BitSet shared = sharedSets.get(s);
+			if (shared == null) {
+				sharedSets.put(s, s);
+				shared = s;
+			}
+			ancestors[t] = shared;
+
+			for (int i=types.getSubtypeStart(t); i<types.getSubtypeEnd(t); ++i) {
+				int c = types.getSubtype(i);
+				if (work[c] == null) {
+					work[c] = shared;
+				} else if (work[c] != shared) {
+					if (!owned[c]) {
+						work[c] = (BitSet)work[c].clone();
+						owned[c] = true;
+					}
+					work[c].or(shared);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Assigns pre/post-order numbers to the tree.
+	 */
+	private void computeIntervals(int[] treeParent) {
+		int n = treeParent.length;
+		int[] childOffsets = new int[n + 1];
+		for (int t=0; t<n; ++t) {
+			if (treeParent[t] >= 0) childOffsets[treeParent[t] + 1]++;
+		}
+		for (int t=0; t<n; ++t) {
+			childOffsets[t + 1] += childOffsets[t];
+		}
+		int[] children = new int[childOffsets[n]];
+		int[] filled = Arrays.copyOf(childOffsets, n);
+		for (int t=0; t<n; ++t) {
+			if (treeParent[t] >= 0) children[filled[treeParent[t]]++] = t;
+		}
+
+		this.pre = new int[n];
+		this.post = new int[n];
+		int preCount = 0;
+		int postCount = 0;
+		int[] stack = new int[n];
+		int[] next = new int[n];
+		for (int root=0; root<n; ++root) {
+			if (treeParent[root] >= 0) continue;
+			int depth = 0;
+			stack[0] = root;
+			next[root] = childOffsets[root];
+			pre[root] = preCount++;
+			while (depth >= 0) {
+				int t = stack[depth];
+				if (next[t] < childOffsets[t + 1]) {
+					int c = children[next[t]++];
+					stack[++depth] = c;
+					next[c] = childOffsets[c];
+					pre[c] = preCount++;
+				} else {
+					post[t] = postCount++;
+					depth--;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param typeId specifies a type.
+	 * @param superTypeId specifies another type.
+	 * @return true if typeId is a sub-type of superTypeId or the same type.
+	 */
+	public boolean isSubtypeOf(int typeId, int superTypeId) {
+		if (typeId == superTypeId) return true;
+		if (!acyclic) return isReachable(superTypeId, typeId);
+
+		if (pre[superTypeId] <= pre[typeId] && post[typeId] <= post[superTypeId]) return true;
+		int bit = bitIndex[superTypeId];
+		return bit >= 0 && ancestors[typeId].get(bit);
+	}
+
+	/**
+	 * @return true if the type is reachable from another type through sub-type relationships.
+	 */
+	private boolean isReachable(int from, int to) {
+		TIntHashSet visited = new TIntHashSet();
+		TIntArrayList worklist = new TIntArrayList();
+		worklist.add(from);
+		while (!worklist.isEmpty()) {
+			int t = worklist.removeAt(worklist.size() - 1);
+			if (t == to) return true;
+			if (!visited.add(t)) continue;
+			for (int i=types.getSubtypeStart(t); i<types.getSubtypeEnd(t); ++i) {
+				worklist.add(types.getSubtype(i));
+			}
+		}
+		return false;
+	}
+}
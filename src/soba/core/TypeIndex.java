@@ -0,0 +1,212 @@
+package soba.core;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import soba.util.ObjectIdMap;
+
+/**
+ * This class is a snapshot of a class hierarchy using integer type IDs.
+ * Super interfaces and sub-types of a type are stored in a single array
+ * (compressed sparse row format):
+ * the elements for type T are stored in array[offsets[T]] .. array[offsets[T+1]-1].
+ * Elements are stored in the iteration order of the original collections.
+ */
+class TypeIndex {
+
+	private static final int[] EMPTY = new int[0];
+
+	private ObjectIdMap<String> ids;
+	private int typeCount;
+	private ClassInfo[] classes;
+	private int[] superClass;
+	private boolean[] hasSuperClass;
+	private boolean[] hasInterfaces;
+	private int[] interfaceOffsets;
+	private int[] interfaces;
+	private int[] subtypeOffsets;
+	private int[] subtypes;
+	private volatile SubtypeIndex subtypeIndex;
+
+	/**
+	 * Creates a new <code>TypeIndex</code> instance from the maps of a class hierarchy.
+	 * @param ids must include all type names in the maps.
+	 */
+	public TypeIndex(ObjectIdMap<String> ids, Map<String, ClassInfo> entries, Map<String, String> parentClass, Map<String, List<String>> parentInterfaces, Map<String, Set<String>> subtypeMap) {
+		this.ids = ids;
+		this.typeCount = ids.size();
+		this.classes = new ClassInfo[typeCount];
+		for (Map.Entry<String, ClassInfo> e: entries.entrySet()) {
+			classes[ids.getId(e.getKey())] = e.getValue();
+		}
+
+		this.superClass = new int[typeCount];
+		this.hasSuperClass = new boolean[typeCount];
+		Arrays.fill(superClass, -1);
+		for (Map.Entry<String, String> e: parentClass.entrySet()) {
+			int id = ids.getId(e.getKey());
+			hasSuperClass[id] = true;
+			if (e.getValue() != null) {
+				superClass[id] = ids.getId(e.getValue());
+			}
+		}
+
+		this.hasInterfaces = new boolean[typeCount];
+		this.interfaceOffsets = new int[typeCount + 1];
+		this.interfaces = toArray(parentInterfaces, interfaceOffsets, hasInterfaces);
+		this.subtypeOffsets = new int[typeCount + 1];
+		this.subtypes = toArray(subtypeMap, subtypeOffsets, null);
+	}
+
+	/**
+	 * Translates a map to an array in compressed sparse row format.
+	 * @param offsets receives the offsets of the elements.
+	 * @param hasEntry receives flags indicating types having entries in the map.  It may be null.
+	 */
+	private int[] toArray(Map<String, ? extends Collection<String>> map, int[] offsets, boolean[] hasEntry) {
+		int[][] values = new int[typeCount][];
+		int total = 0;
+		for (Map.Entry<String, ? extends Collection<String>> e: map.entrySet()) {
+			if (e.getKey() == null) continue;
+			int id = ids.getId(e.getKey());
+			if (hasEntry != null) hasEntry[id] = true;
+			if (e.getValue() == null) continue;
+			int[] v = new int[e.getValue().size()];
+			int i = 0;
+			for (String name: e.getValue()) {
+				v[i++] = ids.getId(name);
+			}
+			values[id] = v;
+			total += v.length;
+		}
+		int[] array = new int[total];
+		int pos = 0;
+		for (int id=0; id<typeCount; ++id) {
+			offsets[id] = pos;
+			if (values[id] != null) {
+				System.arraycopy(values[id], 0, array, pos, values[id].length);
+				pos += values[id].length;
+			}
+		}
+		offsets[typeCount] = pos;
+		return array;
+	}
+
+	/**
+	 * @return the number of types in the index.
+	 */
+	public int getTypeCount() {
+		return typeCount;
+	}
+
+	/**
+	 * @return the ID of the type.  -1 if the type is not included.
+	 */
+	public int getId(String typeName) {
+		if (typeName == null || !ids.contains(typeName)) return -1;
+		int id = ids.getId(typeName);
+		return (id < typeCount) ? id : -1;
+	}
+
+	/**
+	 * @return the name of the type.
+	 */
+	public String getName(int typeId) {
+		return ids.getItem(typeId);
+	}
+
+	/**
+	 * @return a <code>ClassInfo</code> object registered to the hierarchy.
+	 * The return value is null if the type is not registered.
+	 */
+	public ClassInfo getClassInfo(int typeId) {
+		return classes[typeId];
+	}
+
+	/**
+	 * @return the super class ID.  -1 if the super class is unknown.
+	 */
+	public int getSuperClass(int typeId) {
+		return superClass[typeId];
+	}
+
+	/**
+	 * @return true if the super class of the type is registered.
+	 */
+	public boolean hasSuperClass(int typeId) {
+		return hasSuperClass[typeId];
+	}
+
+	/**
+	 * @return true if the interfaces of the type are registered.
+	 */
+	public boolean hasInterfaces(int typeId) {
+		return hasInterfaces[typeId];
+	}
+
+	public int getInterfaceStart(int typeId) {
+		return interfaceOffsets[typeId];
+	}
+
+	public int getInterfaceEnd(int typeId) {
+		return interfaceOffsets[typeId + 1];
+	}
+
+	public int getInterface(int index) {
+		return interfaces[index];
+	}
+
+	public int getSubtypeStart(int typeId) {
+		return subtypeOffsets[typeId];
+	}
+
+	public int getSubtypeEnd(int typeId) {
+		return subtypeOffsets[typeId + 1];
+	}
+
+	public int getSubtype(int index) {
+		return subtypes[index];
+	}
+
+	/**
+	 * @return a copy of the interface IDs of the type.
+	 */
+	public int[] getInterfaces(int typeId) {
+		return copy(interfaces, interfaceOffsets, typeId);
+	}
+
+	/**
+	 * @return a copy of the sub-type IDs of the type.
+	 */
+	public int[] getSubtypes(int typeId) {
+		return copy(subtypes, subtypeOffsets, typeId);
+	}
+
+	/**
+	 * @return an index for sub-type tests.
+	 * The index is created when it is requested for the first time.
+	 */
+	public SubtypeIndex getSubtypeIndex() {
+		SubtypeIndex s = subtypeIndex;
+		if (s == null) {
+			synchronized (this) {
+				s = subtypeIndex;
+				if (s == null) {
+					s = new SubtypeIndex(this);
+					subtypeIndex = s;
+				}
+			}
+		}
+		return s;
+	}
+
+	private static int[] copy(int[] array, int[] offsets, int typeId) {
+		int start = offsets[typeId];
+		int end = offsets[typeId + 1];
+		if (start == end) return EMPTY;
+		return Arrays.copyOfRange(array, start, end);
+	}
+}
@@ -1,12 +1,15 @@
 package soba.core.method;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.RandomAccess;
 
 import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.MethodNode;
 import org.objectweb.asm.tree.analysis.Frame;
 
+import gnu.trove.list.array.TIntArrayList;
 import soba.core.method.asm.DataFlowAnalyzer;
 import soba.core.method.asm.FastSourceInterpreter;
 import soba.core.method.asm.FastSourceValue;
@@ -16,15 +19,51 @@ import soba.util.graph.DirectedGraph;
 
 /**
  * This class has data dependence information in a single method.
+ * Data definitions of operands and local variables are stored 
+ * in flat integer arrays (compressed sparse row format):
+ * instruction i uses slots slotOffsets[i] .. slotOffsets[i+1]-1, 
+ * and slot s is defined by sources[sourceOffsets[s]] .. sources[sourceOffsets[s+1]-1].
+ * <code>Frame</code> objects of the analysis are discarded 
+ * unless the debug mode is enabled by <code>setDebugMode</code>.
+ * Data flow edges are stored in a <code>DataFlowEdgeList</code> sorted by destination instructions;
+ * the order by source instructions is represented by a permutation of the list.
  */
 public class DataDependence {
 
+	private static volatile boolean debugMode = false;
+
 	private ObjectIdMap<AbstractInsnNode> instructions;
-	private DataFlowAnalyzer analyzer;
-	private LocalVariables locals;
+	private DataFlowAnalyzer analyzer; // available only in the debug mode
+	private MethodNode method;
+	private int[] operandCounts;
+	private volatile LocalVariables locals;
+	
+	private DataFlowEdgeList dataFlowEdges;
+	private int[] sourceOrder; // position in the source order -> edge index in dataFlowEdges
+	private int[] incomingOffsets; // destination -> the first edge in dataFlowEdges
+	private int[] outgoingOffsets; // source - METHOD_ENTRY -> the first position in sourceOrder
+	
+	private int[] slotOffsets; // instruction -> the first slot of its operands or a local variable
+	private int[] sourceOffsets; // slot -> the first source of the slot
+	private int[] sources; // instructions defining slots
+	
+	/**
+	 * Enables or disables the debug mode.
+	 * In the debug mode, objects keep <code>Frame</code> objects 
+	 * so that <code>getFrame</code> is available.
+	 * The mode affects objects created after the call.
+	 * @param keepFrames is true to keep frames.
+	 */
+	public static void setDebugMode(boolean keepFrames) {
+		debugMode = keepFrames;
+	}
 	
-	private List<DataFlowEdge> dataFlowEdges;
-	private List<DataFlowEdge> dataFlowEdgesSourceOrder;
+	/**
+	 * @return true if the debug mode is enabled.
+	 */
+	public static boolean isDebugMode() {
+		return debugMode;
+	}
 	
 	/**
 	 * Creates a new <code>DataDependence</code> instance.
@@ -34,7 +73,67 @@ public class DataDependence {
 	public DataDependence(ObjectIdMap<AbstractInsnNode> instructions, DataFlowAnalyzer analyzer) {
 		this.instructions = instructions;
 		this.analyzer = analyzer;
+		this.method = analyzer.getAnalyzedMethod();
+		this.operandCounts = new int[instructions.size()];
+		for (int i=0; i<operandCounts.length; ++i) {
+			operandCounts[i] = analyzer.getOperandCount(i);
+		}
 		computeEdges();
+		if (!debugMode) {
+			this.analyzer = null;
+		}
+	}
+	
+	/**
+	 * Creates a new <code>DataDependence</code> instance from 
+	 * the result of a previous analysis. 
+	 * The object does not have <code>Frame</code> objects.
+	 * @param instructions are instructions in the method.
+	 * @param method is the analyzed method.
+	 * @param operandCounts specifies the number of operands used by each instruction.
+	 * @param edges are data flow edges sorted by their destination instructions
+	 * and then by their operand indices.
+	 * A <code>DataFlowEdgeList</code> object is used (and frozen) without a copy.
+	 */
+	public DataDependence(ObjectIdMap<AbstractInsnNode> instructions, MethodNode method, int[] operandCounts, List<DataFlowEdge> edges) {
+		assert operandCounts.length == instructions.size();
+		this.instructions = instructions;
+		this.method = method;
+		this.operandCounts = operandCounts;
+		this.dataFlowEdges = (edges instanceof DataFlowEdgeList) ? (DataFlowEdgeList)edges : new DataFlowEdgeList(edges);
+		this.dataFlowEdges.freeze();
+		computeEdgeIndexes();
+		computeDefinitionsFromEdges();
+	}
+	
+	/**
+	 * Computes the offsets of edges for each destination and source instruction,
+	 * and the permutation of edges sorted by source instructions.
+	 * The permutation is computed by a stable counting sort, 
+	 * so that edges from the same source keep the order of their destinations.
+	 * The order is the same as <code>DataFlowEdge.SourceComparator</code>.
+	 */
+	private void computeEdgeIndexes() {
+		int instructionCount = instructions.size();
+		int edgeCount = dataFlowEdges.size();
+		incomingOffsets = new int[instructionCount + 1];
+		// Sources include METHOD_ENTRY (-1)
+		outgoingOffsets = new int[instructionCount + 2];
+		for (int e=0; e<edgeCount; ++e) {
+			incomingOffsets[dataFlowEdges.getDestinationInstruction(e) + 1]++;
+			outgoingOffsets[dataFlowEdges.getSourceInstruction(e) - FastSourceInterpreter.METHOD_ENTRY + 1]++;
+		}
+		for (int i=0; i<instructionCount; ++i) {
+			incomingOffsets[i + 1] += incomingOffsets[i];
+		}
+		for (int i=0; i<instructionCount + 1; ++i) {
+			outgoingOffsets[i + 1] += outgoingOffsets[i];
+		}
+		sourceOrder = new int[edgeCount];
+		int[] filled = Arrays.copyOf(outgoingOffsets, instructionCount + 1);
+		for (int e=0; e<edgeCount; ++e) {
+			sourceOrder[filled[dataFlowEdges.getSourceInstruction(e) - FastSourceInterpreter.METHOD_ENTRY]++] = e;
+		}
 	}
 	
 	/**
@@ -42,29 +141,48 @@ public class DataDependence {
 	 * Note: This graph does not contain data dependence edges from formal parameters of the method.
 	 */
 	public DirectedGraph getDependenceGraph() {
-		IntPairList edges = new IntPairList(dataFlowEdges.size());
-		for (DataFlowEdge e: dataFlowEdges) {
-			if (e.getSourceInstruction() != FastSourceInterpreter.METHOD_ENTRY) {
-				edges.add(e.getSourceInstruction(), e.getDestinationInstruction());
+		IntPairList edges = new IntPairList(Math.max(dataFlowEdges.size(), 1));
+		for (int e=0; e<dataFlowEdges.size(); ++e) {
+			if (dataFlowEdges.getSourceInstruction(e) != FastSourceInterpreter.METHOD_ENTRY) {
+				edges.add(dataFlowEdges.getSourceInstruction(e), dataFlowEdges.getDestinationInstruction(e));
 			}
 		}
 		return new DirectedGraph(instructions.size(), edges);
 	}
 	
 	/**
-	 * @return a list of data flow edges.
-	 * The edges are sorted by their destination instructions.
+	 * @return an unmodifiable list of data flow edges.
+	 * The edges are sorted by their destination instructions
+	 * and then by their operand indices.
+	 * Each call of <code>get</code> creates a new <code>DataFlowEdge</code> object;
+	 * use <code>getEdgeList</code> to access the edges without creating objects.
 	 */
 	public List<DataFlowEdge> getEdges() {
 		return dataFlowEdges;
 	}
 	
 	/**
-	 * @return a list of data flow edges.
+	 * @return the read-only list of data flow edges, the same as <code>getEdges()</code>.
+	 * An edge is accessed by its index, e.g. <code>getSourceInstruction(index)</code>.
+	 */
+	public DataFlowEdgeList getEdgeList() {
+		return dataFlowEdges;
+	}
+	
+	/**
+	 * @return an unmodifiable view of data flow edges.
 	 * The edges are sorted by their source instructions.
 	 */
 	public List<DataFlowEdge> getEdgesInSourceOrder() {
-		return dataFlowEdgesSourceOrder;
+		return new SourceOrderView(0, sourceOrder.length);
+	}
+	
+	/**
+	 * @param position specifies a position in <code>getEdgesInSourceOrder()</code>.
+	 * @return the index of the edge in <code>getEdgeList()</code>.
+	 */
+	public int getEdgeInSourceOrder(int position) {
+		return sourceOrder[position];
 	}
 	
 	/**
@@ -72,7 +190,7 @@ public class DataDependence {
 	 */
 	public LocalVariables getLocalVariables() {
 		if (locals == null) {
-			locals = new LocalVariables(this, analyzer.getAnalyzedMethod());
+			locals = new LocalVariables(this, method);
 		}
 		return locals;
 	}
@@ -157,46 +275,98 @@ public class DataDependence {
 	 * The result is consistent with a return value of getEdges().
 	 */
 	public int[][] getDataDefinition(int instructionIndex) {
-		if (useStack(instructionIndex)) {
-			int operands =  analyzer.getOperandCount(instructionIndex);
-			int[][] operandDef = new int[operands][];
-			for (int i=0; i<operands; ++i) {
-				Frame<?> f = analyzer.getFrames()[instructionIndex];
-				FastSourceValue value = (FastSourceValue)f.getStack(f.getStackSize() - operands + i);
-				operandDef[i] = value.getInstructions();
+		int firstSlot = slotOffsets[instructionIndex];
+		int[][] definition = new int[slotOffsets[instructionIndex + 1] - firstSlot][];
+		for (int i=0; i<definition.length; ++i) {
+			int slot = firstSlot + i;
+			definition[i] = Arrays.copyOfRange(sources, sourceOffsets[slot], sourceOffsets[slot + 1]);
+		}
+		return definition;
+	}
+	
+	/**
+	 * Reconstructs data-definition slots from data flow edges
+	 * for an object restored from a cache.
+	 */
+	private void computeDefinitionsFromEdges() {
+		int instructionCount = instructions.size();
+		slotOffsets = new int[instructionCount + 1];
+		TIntArrayList offsets = new TIntArrayList(dataFlowEdges.size() + 1);
+		sources = new int[dataFlowEdges.size()];
+		int sourceCount = 0;
+		int edgeIndex = 0;
+		for (int instructionIndex=0; instructionIndex<instructionCount; ++instructionIndex) {
+			slotOffsets[instructionIndex] = offsets.size();
+			int first = edgeIndex;
+			while (edgeIndex < dataFlowEdges.size() && dataFlowEdges.getDestinationInstruction(edgeIndex) == instructionIndex) {
+				++edgeIndex;
 			}
-			return operandDef;
-		} else {
-			AbstractInsnNode to = instructions.getItem(instructionIndex);
-			if (referLocal(instructionIndex)) {
-				int localIndex = OpcodeString.getVarIndex(to);
-				Frame<?> f = analyzer.getFrames()[instructionIndex];
-				if (f != null) {
-					FastSourceValue value = (FastSourceValue)f.getLocal(localIndex);
-					int[][] localDef = new int[1][];
-					localDef[0] = value.getInstructions();
-					return localDef;
-				} else {
-					// To avoid a problem caused by certain methods including many JSRs
-					return new int[0][0];
+			if (useStack(instructionIndex)) {
+				int operands = operandCounts[instructionIndex];
+				for (int op=0; op<operands; ++op) {
+					offsets.add(sourceCount);
+					for (int i=first; i<edgeIndex; ++i) {
+						if (dataFlowEdges.getDestinationOperandIndex(i) == op) {
+							sources[sourceCount++] = dataFlowEdges.getSourceInstruction(i);
+						}
+					}
+				}
+			} else if (referLocal(instructionIndex) && first < edgeIndex) {
+				// No edges mean that a frame object was missing for the instruction.
+				offsets.add(sourceCount);
+				for (int i=first; i<edgeIndex; ++i) {
+					sources[sourceCount++] = dataFlowEdges.getSourceInstruction(i);
 				}
 			}
 		}
-		return new int[0][];
+		slotOffsets[instructionCount] = offsets.size();
+		offsets.add(sourceCount);
+		sourceOffsets = offsets.toArray();
+	}
+	
+	/**
+	 * @param destinationInstruction is an instruction index value.
+	 * @return the position of the first edge in <code>getEdges()</code>
+	 * whose destination is the specified instruction.
+	 */
+	public int getIncomingEdgeStart(int destinationInstruction) {
+		return incomingOffsets[destinationInstruction];
 	}
 	
 	/**
 	 * @param destinationInstruction is an instruction index value.
-	 * @return a list of data flow edges which destination is specified.
+	 * @return the position next to the last edge in <code>getEdges()</code>
+	 * whose destination is the specified instruction.
+	 */
+	public int getIncomingEdgeEnd(int destinationInstruction) {
+		return incomingOffsets[destinationInstruction + 1];
+	}
+	
+	/**
+	 * @param sourceInstruction is an instruction index value or <code>FastSourceInterpreter.METHOD_ENTRY</code>.
+	 * @return the position of the first edge in <code>getEdgesInSourceOrder()</code>
+	 * whose source is the specified instruction.
+	 * <code>getEdgeInSourceOrder</code> translates the position into an edge index.
+	 */
+	public int getOutgoingEdgeStart(int sourceInstruction) {
+		return outgoingOffsets[sourceInstruction - FastSourceInterpreter.METHOD_ENTRY];
+	}
+	
+	/**
+	 * @param sourceInstruction is an instruction index value or <code>FastSourceInterpreter.METHOD_ENTRY</code>.
+	 * @return the position next to the last edge in <code>getEdgesInSourceOrder()</code>
+	 * whose source is the specified instruction.
+	 */
+	public int getOutgoingEdgeEnd(int sourceInstruction) {
+		return outgoingOffsets[sourceInstruction - FastSourceInterpreter.METHOD_ENTRY + 1];
+	}
+	
+	/**
+	 * @param destinationInstruction is an instruction index value.
+	 * @return an unmodifiable view of data flow edges which destination is specified.
 	 */
 	public List<DataFlowEdge> getIncomingEdges(final int destinationInstruction) {
-		List<DataFlowEdge> edges = new ArrayList<>();
-		for (DataFlowEdge e: dataFlowEdges) {
-			if (e.getDestinationInstruction() == destinationInstruction) {
-				edges.add(e);
-			}
-		}
-		return edges;
+		return dataFlowEdges.subList(incomingOffsets[destinationInstruction], incomingOffsets[destinationInstruction + 1]);
 	}
 	
 	/**
@@ -206,9 +376,9 @@ public class DataDependence {
 	 * (Assumed that this incoming edge is just only one)
 	 */
 	public DataFlowEdge getIncomingEdge(final int destinationInstruction, final int operandIndex) {
-		for (final DataFlowEdge dfe : dataFlowEdges) {
-			if (dfe.getDestinationInstruction() == destinationInstruction && dfe.getDestinationOperandIndex() == operandIndex) {
-				return dfe;
+		for (int i=incomingOffsets[destinationInstruction]; i<incomingOffsets[destinationInstruction + 1]; ++i) {
+			if (dataFlowEdges.getDestinationOperandIndex(i) == operandIndex) {
+				return dataFlowEdges.get(i);
 			}
 		}
 		throw new UnsupportedOperationException();
@@ -217,31 +387,52 @@ public class DataDependence {
 	/**
 	 * @param destinationInstruction is an instruction index value.
 	 * @param operandIndex is an operand index value in the instruction.
-	 * @return a list of data flow edges which destination and operandIndex is specified.
+	 * @return an unmodifiable view of data flow edges which destination and operandIndex is specified.
 	 */
 	public List<DataFlowEdge> getIncomingEdges(final int destinationInstruction, final int operandIndex) {
-		List<DataFlowEdge> edges = new ArrayList<>();
-		for (DataFlowEdge e: dataFlowEdges) {
-			if (e.getDestinationInstruction() == destinationInstruction &&
-					e.getDestinationOperandIndex() == operandIndex) {
-				edges.add(e);
-			}
+		// Edges for the same destination are sorted by their operand indices
+		int start = incomingOffsets[destinationInstruction];
+		int end = incomingOffsets[destinationInstruction + 1];
+		while (start < end && dataFlowEdges.getDestinationOperandIndex(start) != operandIndex) {
+			++start;
+		}
+		int last = start;
+		while (last < end && dataFlowEdges.getDestinationOperandIndex(last) == operandIndex) {
+			++last;
 		}
-		return edges;
+		return dataFlowEdges.subList(start, last);
 	}
 	
+	/**
+	 * @param sourceInstruction is an instruction index value or <code>FastSourceInterpreter.METHOD_ENTRY</code>.
+	 * @return an unmodifiable view of data flow edges which source is specified.
+	 */
+	public List<DataFlowEdge> getOutgoingEdges(final int sourceInstruction) {
+		return new SourceOrderView(getOutgoingEdgeStart(sourceInstruction), getOutgoingEdgeEnd(sourceInstruction));
+	}
+	
+	/**
+	 * Extracts data flow edges and data-definition slots from frames.
+	 */
 	private void computeEdges() {
-		List<DataFlowEdge> edges = new ArrayList<DataFlowEdge>();
+		int instructionCount = instructions.size();
+		DataFlowEdgeList edges = new DataFlowEdgeList(instructionCount * 2);
+		slotOffsets = new int[instructionCount + 1];
+		TIntArrayList offsets = new TIntArrayList(instructionCount + 1);
+		TIntArrayList definitions = new TIntArrayList(instructionCount * 2);
 		
-		for (int instructionIndex=0; instructionIndex<instructions.size(); ++instructionIndex) {
+		for (int instructionIndex=0; instructionIndex<instructionCount; ++instructionIndex) {
 			Frame<?> f = analyzer.getFrames()[instructionIndex];
+			slotOffsets[instructionIndex] = offsets.size();
 			if (useStack(instructionIndex)) {
-				int operands = analyzer.getOperandCount(instructionIndex);
+				int operands = operandCounts[instructionIndex];
 				for (int opIndex=0; opIndex<operands; ++opIndex) {
 					int stackPos = f.getStackSize() - operands + opIndex;
 					FastSourceValue value = (FastSourceValue)f.getStack(stackPos);
+					offsets.add(definitions.size());
 					for (int from: value.getInstructions()) {
-						edges.add(new DataFlowEdge(from, instructionIndex, opIndex, operands, stackPos, false));
+						edges.add(from, instructionIndex, opIndex, operands, stackPos, false);
+						definitions.add(from);
 					}
 				}
 			} else if (referLocal(instructionIndex)) {
@@ -249,8 +440,10 @@ public class DataDependence {
 				int localIndex = OpcodeString.getVarIndex(to);
 				if (f != null) {
 					FastSourceValue value = (FastSourceValue)f.getLocal(localIndex);
+					offsets.add(definitions.size());
 					for (int from: value.getInstructions()) {
-						edges.add(new DataFlowEdge(from, instructionIndex, 0, 1, localIndex, true));
+						edges.add(from, instructionIndex, 0, 1, localIndex, true);
+						definitions.add(from);
 					}
 				} else {
 					// A frame object is missing for several instructions in certain methods including many JSRs.
@@ -259,18 +452,21 @@ public class DataDependence {
 				}
 			}
 		}
-		List<DataFlowEdge> sourceOrder = new ArrayList<DataFlowEdge>(edges.size());
-		sourceOrder.addAll(edges);
-		Collections.sort(sourceOrder, new DataFlowEdge.SourceComparator());
-		dataFlowEdgesSourceOrder = sourceOrder;
+		slotOffsets[instructionCount] = offsets.size();
+		offsets.add(definitions.size());
+		sourceOffsets = offsets.toArray();
+		sources = definitions.toArray();
+		
+		edges.freeze();
 		dataFlowEdges = edges;
+		computeEdgeIndexes();
 	}		
 
 	/**
 	 * @return true if the specified instruction refers to operands on a stack.
 	 */
 	public boolean useStack(int instructionIndex) {
-		return analyzer.getOperandCount(instructionIndex) > 0;
+		return operandCounts[instructionIndex] > 0;
 	}
 
 	/**
@@ -294,7 +490,7 @@ public class DataDependence {
 	 * 1 is returned.
 	 */
 	public int getOperandCount(int instructionIndex) {
-		return analyzer.getOperandCount(instructionIndex);
+		return operandCounts[instructionIndex];
 	}
 	
 	/**
@@ -304,8 +500,39 @@ public class DataDependence {
 	 * @return Frame object.  The return value may be null if 
 	 * control-flow analysis somewhat failed. 
 	 * (It is rarely occurs for certain methods.)
+	 * The return value is always null unless the debug mode is enabled
+	 * when this object is created.
+	 * @see #setDebugMode(boolean)
 	 */
 	public Frame<?> getFrame(int instructionIndex) {
+		if (analyzer == null) return null;
 		return analyzer.getFrames()[instructionIndex];
 	}
+	
+	/**
+	 * A read-only view of edges in the source order.
+	 */
+	private class SourceOrderView extends AbstractList<DataFlowEdge> implements RandomAccess {
+		
+		private int start;
+		private int end;
+		
+		public SourceOrderView(int start, int end) {
+			this.start = start;
+			this.end = end;
+		}
+		
+		@Override
+		public DataFlowEdge get(int index) {
+			if (index < 0 || index >= end - start) {
+				throw new IndexOutOfBoundsException(Integer.toString(index));
+			}
+			return dataFlowEdges.get(sourceOrder[start + index]);
+		}
+		
+		@Override
+		public int size() {
+			return end - start;
+		}
+	}
 }
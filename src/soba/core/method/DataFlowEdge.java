@@ -93,6 +93,30 @@ public class DataFlowEdge {
 		return isLocal;
 	}
 	
+	/**
+	 * Two edges are equal if their attributes are the same.
+	 * <code>DataDependence</code> creates a new object for each request,
+	 * so that edges should not be compared by their identity.
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) return true;
+		if (!(obj instanceof DataFlowEdge)) return false;
+		DataFlowEdge another = (DataFlowEdge)obj;
+		return from == another.from && to == another.to && 
+			operandIndex == another.operandIndex && operandCount == another.operandCount && 
+			variableIndex == another.variableIndex && isLocal == another.isLocal;
+	}
+	
+	@Override
+	public int hashCode() {
+		int h = from;
+		h = h * 31 + to;
+		h = h * 31 + operandIndex;
+		h = h * 31 + variableIndex;
+		return isLocal ? h * 31 + 1 : h;
+	}
+	
 	@Override
 	public String toString() {
 		StringBuilder builder = new StringBuilder(64);
@@ -0,0 +1,175 @@
+package soba.core.method;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+import soba.core.method.asm.FastSourceInterpreter;
+
+/**
+ * This class stores data flow edges in parallel integer arrays
+ * instead of <code>DataFlowEdge</code> objects.
+ * The attributes of the i-th edge are accessed by index,
+ * e.g. <code>getSourceInstruction(i)</code>, without creating objects.
+ * As a <code>List</code>, <code>get(i)</code> returns a new <code>DataFlowEdge</code> object
+ * whose attributes are the same as the i-th edge.
+ * A list becomes read-only after <code>freeze</code> is called.
+ */
+public class DataFlowEdgeList extends AbstractList<DataFlowEdge> implements RandomAccess {
+
+	private int count;
+	private int[] from;
+	private int[] to;
+	private int[] operands; // operandIndex << 16 | operandCount
+	private int[] variables; // variableIndex << 1 | (isLocal ? 1 : 0)
+	private boolean frozen;
+
+	/**
+	 * Creates a new empty <code>DataFlowEdgeList</code> instance.
+	 * @param capacity specifies the initial capacity.
+	 */
+	public DataFlowEdgeList(int capacity) {
+		capacity = Math.max(capacity, 4);
+		from = new int[capacity];
+		to = new int[capacity];
+		operands = new int[capacity];
+		variables = new int[capacity];
+	}
+
+	/**
+	 * Creates a new <code>DataFlowEdgeList</code> instance including the specified edges.
+	 * @param edges are copied to the list.
+	 */
+	public DataFlowEdgeList(Collection<DataFlowEdge> edges) {
+		this(edges.size());
+		for (DataFlowEdge e: edges) {
+			add(e.getSourceInstruction(), e.getDestinationInstruction(), e.getDestinationOperandIndex(), e.getDestinationOperandCount(), e.getVariableIndex(), e.isLocal());
+		}
+	}
+
+	/**
+	 * Adds an edge to the list.
+	 * The parameters are the same as the constructor of <code>DataFlowEdge</code>.
+	 * @throws UnsupportedOperationException if the list is frozen.
+	 */
+	public void add(int from, int to, int operandIndex, int operandCount, int variableIndex, boolean isLocal) {
+		assert operandIndex < operandCount && operandCount <= 0xFFFF;
+		if (frozen) throw new UnsupportedOperationException();
+		if (count == this.from.length) growUp();
+		this.from[count] = from;
+		this.to[count] = to;
+		this.operands[count] = (operandIndex << 16) | operandCount;
+		this.variables[count] = (variableIndex << 1) | (isLocal ? 1 : 0);
+		count++;
+	}
+
+	private void growUp() {
+		int capacity = from.length * 2;
+		from = Arrays.copyOf(from, capacity);
+		to = Arrays.copyOf(to, capacity);
+		operands = Arrays.copyOf(operands, capacity);
+		variables = Arrays.copyOf(variables, capacity);
+	}
+
+	/**
+	 * Makes the list read-only.
+	 * Unused capacity is released.
+	 */
+	public void freeze() {
+		if (!frozen) {
+			if (from.length > count) {
+				from = Arrays.copyOf(from, count);
+				to = Arrays.copyOf(to, count);
+				operands = Arrays.copyOf(operands, count);
+				variables = Arrays.copyOf(variables, count);
+			}
+			frozen = true;
+		}
+	}
+
+	/**
+	 * @return the number of edges.
+	 */
+	@Override
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * @return a new <code>DataFlowEdge</code> object representing the specified edge.
+	 */
+	@Override
+	public DataFlowEdge get(int index) {
+		checkIndex(index);
+		return new DataFlowEdge(from[index], to[index], getDestinationOperandIndex(index), getDestinationOperandCount(index), getVariableIndex(index), isLocal(index));
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= count) {
+			throw new IndexOutOfBoundsException(Integer.toString(index));
+		}
+	}
+
+	/**
+	 * @return the estimated size of the list in bytes.
+	 */
+	public long getEstimatedBytes() {
+		return 64 + 16L * from.length;
+	}
+
+	/**
+	 * @see DataFlowEdge#getSourceInstruction()
+	 */
+	public int getSourceInstruction(int index) {
+		checkIndex(index);
+		return from[index];
+	}
+
+	/**
+	 * @see DataFlowEdge#getDestinationInstruction()
+	 */
+	public int getDestinationInstruction(int index) {
+		checkIndex(index);
+		return to[index];
+	}
+
+	/**
+	 * @see DataFlowEdge#getDestinationOperandIndex()
+	 */
+	public int getDestinationOperandIndex(int index) {
+		checkIndex(index);
+		return operands[index] >>> 16;
+	}
+
+	/**
+	 * @see DataFlowEdge#getDestinationOperandCount()
+	 */
+	public int getDestinationOperandCount(int index) {
+		checkIndex(index);
+		return operands[index] & 0xFFFF;
+	}
+
+	/**
+	 * @see DataFlowEdge#getVariableIndex()
+	 */
+	public int getVariableIndex(int index) {
+		checkIndex(index);
+		return variables[index] >> 1;
+	}
+
+	/**
+	 * @see DataFlowEdge#isLocal()
+	 */
+	public boolean isLocal(int index) {
+		checkIndex(index);
+		return (variables[index] & 1) != 0;
+	}
+
+	/**
+	 * @see DataFlowEdge#isParameter()
+	 */
+	public boolean isParameter(int index) {
+		return isLocal(index) && from[index] == FastSourceInterpreter.METHOD_ENTRY;
+	}
+}
@@ -1,10 +1,17 @@
 package soba.core.vta;
 
+import gnu.trove.list.array.TIntArrayList;
+
+import java.util.ArrayList;
+import java.util.List;
+
 import soba.core.ClassHierarchy;
 import soba.core.IDynamicBindingResolver;
 import soba.core.JavaProgram;
 import soba.core.MethodInfo;
 import soba.core.method.CallSite;
+import soba.util.IntPairList;
+import soba.util.ObjectIdMap;
 
 /**
  * This class wraps VTA resolver and CHA resolver.  
@@ -48,6 +55,11 @@ public abstract class CallResolver implements IDynamicBindingResolver {
 		public MethodInfo[] resolveCall(CallSite c) {
 			return ch.resolveCall(c);
 		}
+		
+		@Override
+		public void resolveCalls(List<CallSite> callSites, ObjectIdMap<MethodInfo> methodIds, IntPairList result) {
+			ch.resolveCalls(callSites, methodIds, result);
+		}
 	}
 	
 	private static class VTA extends CallResolver {
@@ -67,5 +79,40 @@ public abstract class CallResolver implements IDynamicBindingResolver {
 				return vta.resolveCall(c);
 			}
 		}
+		
+		@Override
+		public void resolveCalls(List<CallSite> callSites, ObjectIdMap<MethodInfo> methodIds, IntPairList result) {
+			List<CallSite> staticCalls = new ArrayList<>();
+			List<CallSite> dynamicCalls = new ArrayList<>();
+			TIntArrayList staticIndex = new TIntArrayList();
+			TIntArrayList dynamicIndex = new TIntArrayList();
+			for (int i=0; i<callSites.size(); ++i) {
+				CallSite c = callSites.get(i);
+				if (c.isStaticOrSpecial()) {
+					staticCalls.add(c);
+					staticIndex.add(i);
+				} else {
+					dynamicCalls.add(c);
+					dynamicIndex.add(i);
+				}
+			}
+			IntPairList staticResult = new IntPairList();
+			IntPairList dynamicResult = new IntPairList();
+			ch.resolveCalls(staticCalls, methodIds, staticResult);
+			vta.resolveCalls(dynamicCalls, methodIds, dynamicResult);
+			
+			// Merge the results in the order of call sites
+			int s = 0;
+			int d = 0;
+			while (s < staticResult.size() || d < dynamicResult.size()) {
+				int staticCall = (s < staticResult.size()) ? staticIndex.get(staticResult.getFirstValue(s)) : Integer.MAX_VALUE;
+				int dynamicCall = (d < dynamicResult.size()) ? dynamicIndex.get(dynamicResult.getFirstValue(d)) : Integer.MAX_VALUE;
+				if (staticCall < dynamicCall) {
+					result.add(staticCall, staticResult.getSecondValue(s++));
+				} else {
+					result.add(dynamicCall, dynamicResult.getSecondValue(d++));
+				}
+			}
+		}
 	}
 }
@@ -31,6 +31,7 @@ import soba.core.method.DataDependence;
 import soba.core.signature.TypeConstants;
 import soba.core.signature.TypeResolver;
 import soba.util.IntPairList;
+import soba.util.ObjectIdMap;
 import soba.util.graph.DirectedAcyclicGraph;
 import soba.util.graph.DirectedGraph;
 
@@ -110,7 +111,7 @@ public class VTAResolver implements IDynamicBindingResolver {
 		for (ClassInfo c: program.getClasses()) {
 			for (int mIndex = 0; mIndex < c.getMethodCount(); mIndex++) {
 				MethodInfo m = c.getMethod(mIndex);
-				if (m.hasMethodBody() && (selector == null || selector.isTargetMethod(m))) {
+				if (m.isBodyAvailable() && (selector == null || selector.isTargetMethod(m))) {
 					// Create vertices for local variables (including formal parameters)
 //					MethodBody body = m.getMethodBody();
 					DataDependence dataflow = m.getDataDependence();
@@ -137,7 +138,7 @@ public class VTAResolver implements IDynamicBindingResolver {
 		for (ClassInfo c: program.getClasses()) {
 			for (int mIndex = 0; mIndex < c.getMethodCount(); mIndex++) {
 				MethodInfo m = c.getMethod(mIndex);
-				if (m.hasMethodBody() && (selector == null || selector.isTargetMethod(m))) {
+				if (m.isBodyAvailable() && (selector == null || selector.isTargetMethod(m))) {
 //					MethodBody body = m.getMethodBody();
 					DataDependence dataflow = m.getDataDependence();
 					
@@ -228,75 +229,123 @@ public class VTAResolver implements IDynamicBindingResolver {
 	 */
 	@Override
 	public MethodInfo[] resolveCall(CallSite cs) {
+		int v = getReceiverVertex(cs);
+		if (v >= 0) {
+			return resolveCall(reachingTypes[v], declaredTypeNames.get(v), cs.getMethodName(), cs.getDescriptor());
+		} else {
+			return new MethodInfo[0];
+		}
+	}
+	
+	/**
+	 * Resolves method calls at once.
+	 * Call sites whose receivers have the same set of types are resolved once.
+	 * @see IDynamicBindingResolver#resolveCalls(List, ObjectIdMap, IntPairList)
+	 */
+	@Override
+	public void resolveCalls(List<CallSite> callSites, ObjectIdMap<MethodInfo> methodIds, IntPairList result) {
+		HashMap<ReceiverKey, int[]> resolved = new HashMap<>();
+		for (int i=0; i<callSites.size(); ++i) {
+			CallSite cs = callSites.get(i);
+			int v = getReceiverVertex(cs);
+			if (v < 0) continue;
+			
+			ReceiverKey key = new ReceiverKey(reachingTypes[v], declaredTypeNames.get(v), cs.getMethodName(), cs.getDescriptor());
+			int[] ids = resolved.get(key);
+			if (ids == null) {
+				MethodInfo[] methods = resolveCall(key.types, key.declaredType, key.methodName, key.methodDesc);
+				ids = new int[methods.length];
+				for (int j=0; j<methods.length; ++j) {
+					ids[j] = methodIds.getId(methods[j]);
+				}
+				resolved.put(key, ids);
+			}
+			for (int id: ids) {
+				result.add(i, id);
+			}
+		}
+	}
+	
+	/**
+	 * @param cs specifies a method call.
+	 * @return the vertex ID representing the receiver object of the call.
+	 * The return value is -1 if the call is not analyzed.
+	 */
+	private int getReceiverVertex(CallSite cs) {
 		int instruction = cs.getInstructionIndex();
 		CallSiteVertices[] callsites = callsiteMap.get(cs.getOwnerMethod());
 		if (callsites != null) {
 			CallSiteVertices params = callsites[instruction];
 			if (params != null) {
-				HashSet<MethodInfo> called = new HashSet<>();
 				int v = params.getParamVertexId(0);
-				TypeSet types = reachingTypes[v];
-				String methodName = params.getCallSite().getMethodName();
-				String methodDesc = params.getCallSite().getDescriptor();
-				if (types != null) {
-					ArrayList<String> declaredType = new ArrayList<String>();
-					declaredType.add(declaredTypeNames.get(v));
-					Collection<String> declaredSubtypes = hierarchy.getAllSubtypes(declaredType);
-					
-					for (int i=0; i<types.getTypeCount(); ++i) {
-						String className = types.getType(i);
-						if (declaredSubtypes.contains(className)) {
-							MethodInfo m = hierarchy.resolveSpecialCall(className, methodName, methodDesc);
-							if (m != null && !target.isExcludedType(m.getClassName())) {
-								called.add(m);
-							}
-						}
-					}
-					
-					ArrayList<String> approxTypes = new ArrayList<String>();
-					for (int i=0; i<types.getApproximatedTypeCount(); ++i) {
-						approxTypes.add(types.getApproximatedType(i));
-					}
-					Collection<String> subtypes = hierarchy.getAllSubtypes(approxTypes);
-					for (String className: subtypes) {
-						if (declaredSubtypes.contains(className)) {
-							MethodInfo m = hierarchy.resolveSpecialCall(className, methodName, methodDesc);
-							if (m != null && !target.isExcludedType(m.getClassName())) {
-								called.add(m);
-							}
-						}
-					}
-					MethodInfo[] methods = called.toArray(new MethodInfo[0]);
-					Arrays.sort(methods, new Comparator<MethodInfo>() {
-						@Override
-						public int compare(MethodInfo o1, MethodInfo o2) {
-							int idx = o1.getClassName().compareTo(o2.getClassName());
-							if (idx != 0) return idx;
-							
-							idx = o1.getMethodName().compareTo(o2.getMethodName());
-							if (idx != 0) return idx;
-
-							idx = o1.getDescriptor().compareTo(o2.getDescriptor());
-							if (idx != 0) return idx;
-							
-							return o1.hashCode() - o2.hashCode();
-						}
-					});
-					return methods;
+				if (reachingTypes[v] != null) {
+					return v;
 				} else {
 					// types == null if the invocation is not processed -- this condition is never satisfied.
-					return new MethodInfo[0];
+					return -1;
 				}
 			} else {
 				// params == null if the specified instruction is not an invocation.
-				return new MethodInfo[0];
+				return -1;
 			}
 		} else {
 			// callsites == null if the caller is not included in the analysis.
-			return new MethodInfo[0];
+			return -1;
 		}
 	}
 	
+	/**
+	 * Resolves a method call for a set of receiver types.
+	 * @param types specifies the types of the receiver object.
+	 * @param declaredType specifies the declared type of the receiver object.
+	 * @param methodName
+	 * @param methodDesc
+	 * @return an array of methods sorted by their names.
+	 */
+	private MethodInfo[] resolveCall(TypeSet types, String declaredType, String methodName, String methodDesc) {
+		HashSet<MethodInfo> called = new HashSet<>();
+		for (int i=0; i<types.getTypeCount(); ++i) {
+			String className = types.getType(i);
+			if (hierarchy.isSubtypeOf(className, declaredType)) {
+				MethodInfo m = hierarchy.resolveSpecialCall(className, methodName, methodDesc);
+				if (m != null && !target.isExcludedType(m.getClassName())) {
+					called.add(m);
+				}
+			}
+		}
+		
+		ArrayList<String> approxTypes = new ArrayList<String>();
+		for (int i=0; i<types.getApproximatedTypeCount(); ++i) {
+			approxTypes.add(types.getApproximatedType(i));
+		}
+		Collection<String> subtypes = hierarchy.getAllSubtypes(approxTypes);
+		for (String className: subtypes) {
+			if (hierarchy.isSubtypeOf(className, declaredType)) {
+				MethodInfo m = hierarchy.resolveSpecialCall(className, methodName, methodDesc);
+				if (m != null && !target.isExcludedType(m.getClassName())) {
+					called.add(m);
+				}
+			}
+		}
+		MethodInfo[] methods = called.toArray(new MethodInfo[0]);
+		Arrays.sort(methods, new Comparator<MethodInfo>() {
+			@Override
+			public int compare(MethodInfo o1, MethodInfo o2) {
+				int idx = o1.getClassName().compareTo(o2.getClassName());
+				if (idx != 0) return idx;
+				
+				idx = o1.getMethodName().compareTo(o2.getMethodName());
+				if (idx != 0) return idx;
+
+				idx = o1.getDescriptor().compareTo(o2.getDescriptor());
+				if (idx != 0) return idx;
+				
+				return o1.hashCode() - o2.hashCode();
+			}
+		});
+		return methods;
+	}
+	
 	/**
 	 * Assign types for each vertex.
 	 * @param typePropagationDAG
@@ -669,26 +718,22 @@ public class VTAResolver implements IDynamicBindingResolver {
 		String className = node.owner;
 		String fieldName = node.name;
 		String desc = node.desc;
-		String owner;
+		FieldInfo f;
 		if (node.getOpcode() == Opcodes.PUTSTATIC || 
 			node.getOpcode() == Opcodes.GETSTATIC) {
-			owner = hierarchy.resolveStaticFieldOwner(className, fieldName, desc);
+			f = hierarchy.resolveStaticField(className, fieldName, desc);
 		} else {
 			assert node.getOpcode() == Opcodes.PUTFIELD || 
 			        node.getOpcode() == Opcodes.GETFIELD;
-			owner = hierarchy.resolveInstanceFieldOwner(className, fieldName, desc);
-		}
-		ClassInfo c = hierarchy.getClassInfo(owner);
-		if (c != null) {
-			FieldInfo f = c.findField(fieldName, desc);
-			if (f != null) {
-				FieldVertex fv = fieldVertex.get(f);
-				if (fv != null) {
-					return fv;
-				} else {
-					assert TypeConstants.isPrimitiveTypeName(f.getFieldTypeName());
-					return null;
-				}
+			f = hierarchy.resolveInstanceField(className, fieldName, desc);
+		}
+		if (f != null) {
+			FieldVertex fv = fieldVertex.get(f);
+			if (fv != null) {
+				return fv;
+			} else {
+				assert TypeConstants.isPrimitiveTypeName(f.getFieldTypeName());
+				return null;
 			}
 		}
 		return null;
@@ -729,6 +774,42 @@ public class VTAResolver implements IDynamicBindingResolver {
 		}
 	}
 		
+	/**
+	 * A key to identify a resolution of a method call.
+	 * Type sets are compared by their identity, since they are shared among vertices.
+	 */
+	private static class ReceiverKey {
+		private TypeSet types;
+		private String declaredType;
+		private String methodName;
+		private String methodDesc;
+		private int hash;
+		
+		public ReceiverKey(TypeSet types, String declaredType, String methodName, String methodDesc) {
+			this.types = types;
+			this.declaredType = declaredType;
+			this.methodName = methodName;
+			this.methodDesc = methodDesc;
+			this.hash = ((System.identityHashCode(types) * 31 + declaredType.hashCode()) * 31 + methodName.hashCode()) * 31 + methodDesc.hashCode();
+		}
+		
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			if (obj instanceof ReceiverKey) {
+				ReceiverKey another = (ReceiverKey)obj;
+				return types == another.types && hash == another.hash &&
+						declaredType.equals(another.declaredType) && 
+						methodName.equals(another.methodName) && methodDesc.equals(another.methodDesc);
+			}
+			return false;
+		}
+	}
+	
 	private static class FieldVertex {
 		private int vertexID;
 		private FieldInfo fieldInfo;
@@ -92,6 +92,17 @@ public class IntPairList {
 		}
 	}
 
+	/**
+	 * Removes all the pairs.
+	 */
+	public void clear() {
+		if (!frozen) {
+			count = 0;
+		} else {
+			throw new FrozenListException();
+		}
+	}
+
 	private void growUp() {
 		long[] newValues = new long[values.length * 2];
 		for (int i=0; i<count; ++i) {
@@ -36,6 +36,14 @@ public class ObjectIdMap<T> {
 		frozen = true;
 	}
 	
+	/**
+	 * Enables assigning new IDs again.
+	 * Existing IDs are not changed.
+	 */
+	public void unfreeze() {
+		frozen = false;
+	}
+	
 	/**
 	 * Adds a new object.
 	 * @param s
@@ -65,6 +73,14 @@ public class ObjectIdMap<T> {
 		}
 	}
 	
+	/**
+	 * @param item specifies an object.
+	 * @return true if the object has an ID.
+	 */
+	public boolean contains(T item) {
+		return map.containsKey(item);
+	}
+	
 	/**
 	 * @param id
 	 * @return an object.
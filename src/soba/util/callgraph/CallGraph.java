@@ -23,10 +23,21 @@ public class CallGraph {
 	private DirectedGraph callGraph;
 	private DirectedGraph reverseCallGraph;
 	
+	/**
+	 * Creates a call graph using the class hierarchy of a program.
+	 * If the hierarchy is frozen (see <code>ProgramOptions.setFrozenHierarchy</code>), 
+	 * calls of the same method are resolved once.
+	 * @param program specifies methods in the graph.
+	 */
 	public CallGraph(JavaProgram program) {
 		this(program, program.getClassHierarchy());
 	}
 	
+	/**
+	 * Creates a call graph.
+	 * @param program specifies methods in the graph.
+	 * @param resolver resolves calls in the methods.
+	 */
 	public CallGraph(JavaProgram program, IDynamicBindingResolver resolver) {
 		methodToId = new ObjectIdMap<>();
 		for (ClassInfo c: program.getClasses()) {
@@ -36,14 +47,15 @@ public class CallGraph {
 		}
 		
 		IntPairList edges = new IntPairList();
+		IntPairList callees = new IntPairList();
 		for (ClassInfo c: program.getClasses()) {
 			for (MethodInfo m: c.getMethods()) {
-				for (CallSite cs: m.getCallSites()) {
-					MethodInfo[] callees = resolver.resolveCall(cs);
-					for (MethodInfo callee: callees) {
-						// m may call callee
-						edges.add(methodToId.getId(m), methodToId.getId(callee));
-					}
+				callees.clear();
+				resolver.resolveCalls(m.getCallSites(), methodToId, callees);
+				int callerId = methodToId.getId(m);
+				for (int i=0; i<callees.size(); ++i) {
+					// m may call callee
+					edges.add(callerId, callees.getSecondValue(i));
 				}
 			}
 		}
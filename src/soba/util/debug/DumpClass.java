@@ -11,7 +11,7 @@ import org.objectweb.asm.tree.TryCatchBlockNode;
 import org.objectweb.asm.tree.analysis.Frame;
 
 import soba.core.ClassInfo;
-import soba.core.JavaProgram;
+import soba.core.ClassStream;
 import soba.core.MethodInfo;
 import soba.core.method.DataDependence;
 import soba.core.method.DataFlowEdge;
@@ -56,6 +56,7 @@ public class DumpClass {
 					enableOutput = false;
 				} else if (arg.equals("--output-frame")) {
 					dumpStackframe = true;
+					DataDependence.setDebugMode(true);
 				} else if (arg.equals("--output-param")) {
 					dumpParamName = true;
 				} else if (arg.equals("--output-try")) {
@@ -78,10 +79,14 @@ public class DumpClass {
 			}
 		}
 		
-		JavaProgram program = new JavaProgram((IClassList[]) files.toArray(new IClassList[files.size()]));
-		for (ClassInfo c: program.getClasses()) {
-			processClass(c);
-		}
+		// Classes are processed one by one so that they are not retained in memory.
+		ClassStream stream = new ClassStream((IClassList[]) files.toArray(new IClassList[files.size()]), null);
+		stream.process(new ClassStream.IClassProcessor() {
+			@Override
+			public void process(ClassInfo c) {
+				processClass(c);
+			}
+		});
 		
 		System.err.println("FINISHED: " +  timer.getTotaltime() + " ms");
 		System.err.println("#Classes: " +  classCount);
@@ -99,7 +104,7 @@ public class DumpClass {
 			}
 			
 			MethodInfo methodInfo = m;
-			if (!methodInfo.hasMethodBody()) continue;
+			if (!methodInfo.isBodyAvailable()) continue;
 
 			DataDependence info = methodInfo.getDataDependence();
 			
@@ -54,6 +54,11 @@ public class ClasspathUtil {
 		return result.toArray(new IClassList[0]);
 	}
 
+	/**
+	 * @return the class path, the boot class path and extension libraries of the running JVM.
+	 * Java 9 and later versions have no boot class path;
+	 * use <code>soba.core.JdkSnapshot</code> to access the classes of the Java runtime.
+	 */
 	public static List<String> enumerateSystemClasspath() {
 		final String PATH_SPLIT_REGEX = "\\s*" + File.pathSeparatorChar + "\\s*";
 		List<String> classpath = new ArrayList<String>(1024);
@@ -4,8 +4,23 @@ import java.io.File;
 import java.io.FileFilter;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
 import java.util.Stack;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
 
 
 public class Directory implements IClassList {
@@ -15,6 +30,8 @@ public class Directory implements IClassList {
 	private boolean searchZip = false;
 	private boolean searchZipRecursive = false;
 	private boolean autoOpen = true;
+	private boolean fastTraversal = false;
+	private int parallelism = 1;
 	
 	public Directory(File dir) {
 		assert dir.isDirectory(): dir.getAbsolutePath() + " is not a directory.";
@@ -80,8 +97,34 @@ public class Directory implements IClassList {
 		this.autoOpen = false;
 	}
 	
+	/**
+	 * Enables a traversal using NIO.
+	 * The traversal reads attributes of each file only once,
+	 * and it passes files to a callback in the order of their paths.
+	 * File names are resolved from the canonical path of the directory;
+	 * in other words, symbolic links in the directory are not resolved. 
+	 */
+	public void enableFastTraversal() {
+		this.fastTraversal = true;
+	}
+	
+	/**
+	 * Enables a traversal using NIO that scans sub-directories by multiple threads.
+	 * The callback is always called by the thread calling <code>process</code>,
+	 * and the order of files is the same as a single thread.
+	 * @param threads specifies the number of threads scanning directories.
+	 */
+	public void setParallelism(int threads) {
+		this.fastTraversal = true;
+		this.parallelism = Math.max(1, threads);
+	}
+	
 	@Override
 	public void process(IClassListCallback c) {
+		if (fastTraversal) {
+			processFast(c);
+			return;
+		}
 		FileFilterCallback filter = new FileFilterCallback(c); 
 		Stack<File> worklist = new Stack<File>();
 		worklist.push(dir);
@@ -120,6 +163,190 @@ public class Directory implements IClassList {
 		}
 	}
 	
+	/**
+	 * Lists files using NIO and then processes them in the order of their paths.
+	 */
+	private void processFast(IClassListCallback c) {
+		Path root;
+		List<Path> files;
+		try {
+			root = dir.getCanonicalFile().toPath();
+			if (parallelism > 1) {
+				files = scanInParallel(root);
+			} else {
+				files = new ArrayList<Path>();
+				scan(root, files);
+			}
+		} catch (IOException e) {
+			c.reportError(dir.getAbsolutePath(), e);
+			return;
+		}
+		Collections.sort(files);
+		
+		for (Path p: files) {
+			String name = p.toString();
+			if (c.isTarget(name)) {
+				try {
+					if (autoOpen) {
+						try (InputStream binaryStream = Files.newInputStream(p)) {
+							c.process(name, binaryStream);
+						}
+					} else {
+						c.process(name, null);
+					}
+				} catch (AccessDeniedException e) {
+					// Skip an unreadable file.
+				} catch (IOException e) {
+					boolean stop = c.reportError(name, e);
+					if (stop) break;
+				}
+			} else if (searchZip && ZipFile.isZipFile(name) && Files.isReadable(p)) {
+				ZipFile zip = new ZipFile(p.toFile());
+				if (searchZipRecursive) zip.enableRecursiveSearch();
+				zip.process(c);
+			}
+		}
+	}
+	
+	/**
+	 * Scans a directory tree by worker threads.
+	 * Each directory is split into tasks for its sub-directories 
+	 * while idle threads may take the tasks; 
+	 * in other words, a deep or unbalanced tree is also scanned in parallel.
+	 * The files are merged in the order of the directories.
+	 */
+	private List<Path> scanInParallel(Path root) throws IOException {
+		ForkJoinPool scanners = new ForkJoinPool(parallelism, new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+			@Override
+			public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+				ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+				t.setName("soba-scanner-" + t.getPoolIndex());
+				t.setDaemon(true);
+				return t;
+			}
+		}, null, false);
+		try {
+			return scanners.invoke(new ScanTask(root, null));
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		} catch (RuntimeException e) {
+			// A task may rethrow a copy of an exception thrown by another thread
+			if (e.getCause() instanceof UncheckedIOException) {
+				throw ((UncheckedIOException)e.getCause()).getCause();
+			}
+			throw e;
+		} finally {
+			scanners.shutdownNow();
+		}
+	}
+	
+	/**
+	 * A task scanning a directory.
+	 * Since a task visits only the files in the directory,
+	 * it keeps the directories from the root to detect symbolic link loops.
+	 */
+	private static class ScanTask extends RecursiveTask<List<Path>> {
+		
+		private static final long serialVersionUID = 1L;
+		
+		/**
+		 * A task is split while the number of waiting tasks in a worker thread 
+		 * is less than this value.
+		 */
+		private static final int SPLIT_THRESHOLD = 4;
+		
+		private Path dir;
+		private ScanTask parent;
+		private Object fileKey;
+		
+		public ScanTask(Path dir, ScanTask parent) {
+			this.dir = dir;
+			this.parent = parent;
+		}
+		
+		@Override
+		protected List<Path> compute() {
+			final List<Path> files = new ArrayList<Path>();
+			final List<ScanTask> subdirs = new ArrayList<ScanTask>();
+			try {
+				Files.walkFileTree(dir, EnumSet.of(FileVisitOption.FOLLOW_LINKS), 1, new SimpleFileVisitor<Path>() {
+					@Override
+					public FileVisitResult preVisitDirectory(Path d, BasicFileAttributes attrs) {
+						fileKey = attrs.fileKey();
+						return FileVisitResult.CONTINUE;
+					}
+					
+					@Override
+					public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+						if (attrs.isRegularFile()) {
+							files.add(file);
+						} else if (attrs.isDirectory() && !isAncestor(attrs.fileKey())) {
+							// Directories at the maximum depth are passed to visitFile.
+							subdirs.add(new ScanTask(file, ScanTask.this));
+						}
+						return FileVisitResult.CONTINUE;
+					}
+					
+					@Override
+					public FileVisitResult visitFileFailed(Path file, IOException exc) {
+						return FileVisitResult.CONTINUE;
+					}
+				});
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			
+			boolean[] forked = new boolean[subdirs.size()];
+			for (int i=subdirs.size()-1; i>=0; --i) {
+				if (getSurplusQueuedTaskCount() < SPLIT_THRESHOLD) {
+					subdirs.get(i).fork();
+					forked[i] = true;
+				}
+			}
+			for (int i=0; i<subdirs.size(); ++i) {
+				ScanTask t = subdirs.get(i);
+				files.addAll(forked[i] ? t.join() : t.compute());
+			}
+			return files;
+		}
+		
+		/**
+		 * @return true if the key identifies this directory or its ancestor.
+		 * A key is not available on some platforms; 
+		 * the method returns false for such a case.
+		 */
+		private boolean isAncestor(Object key) {
+			if (key == null) return false;
+			for (ScanTask t = this; t != null; t = t.parent) {
+				if (key.equals(t.fileKey)) return true;
+			}
+			return false;
+		}
+	}
+	
+	/**
+	 * Lists regular files in a directory tree.
+	 * Unreadable directories and symbolic link loops are skipped.
+	 * @param start specifies a directory. 
+	 * @param files receives regular files.
+	 */
+	private static void scan(final Path start, final List<Path> files) throws IOException {
+		Files.walkFileTree(start, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+				if (attrs.isRegularFile()) {
+					files.add(file);
+				}
+				return FileVisitResult.CONTINUE;
+			}
+			
+			@Override
+			public FileVisitResult visitFileFailed(Path file, IOException exc) {
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+	
 	private class FileFilterCallback implements FileFilter { 
 		
 		private IClassListCallback callback;
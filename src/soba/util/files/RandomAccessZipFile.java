@@ -0,0 +1,243 @@
+package soba.util.files;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.ZipEntry;
+
+/**
+ * A class to select files in a ZIP/JAR file using its central directory.
+ * Unlike <code>ZipFile</code>, this class selects entries by their names
+ * before inflating them, and it can inflate entries by multiple threads.
+ * Entries are passed to a callback in the order of the central directory.
+ * If recursive search is enabled, a ZIP/JAR file in the file is extracted to 
+ * a temporary file once, and then its entries are also accessed 
+ * using its central directory. 
+ * The temporary files are reused by subsequent calls of <code>process</code>
+ * and removed by <code>close</code>.
+ */
+public class RandomAccessZipFile implements IClassList, Closeable {
+
+	private static final int LOOKAHEAD_PER_THREAD = 16;
+
+	private File zip;
+	private String label;
+	private boolean searchRecursive;
+	private int parallelism;
+	private Map<String, File> extracted;
+
+	public RandomAccessZipFile(File zipFile) {
+		assert ZipFile.isZipFile(zipFile);
+		this.zip = zipFile;
+		this.parallelism = 1;
+		this.extracted = new HashMap<>();
+	}
+
+	public void setLabel(String l) {
+		this.label = l;
+	}
+
+	@Override
+	public String getLabel() {
+		return label;
+	}
+
+	/**
+	 * Enables to process ZIP/JAR files in the ZIP file.
+	 */
+	public void enableRecursiveSearch() {
+		searchRecursive = true;
+	}
+
+	/**
+	 * @param threads specifies the number of threads inflating entries.
+	 * The callback is always called by the thread calling <code>process</code>.
+	 */
+	public void setParallelism(int threads) {
+		this.parallelism = Math.max(1, threads);
+	}
+
+	/**
+	 * Processes the entries in the file.
+	 * If the parallelism is more than one, a single set of worker threads 
+	 * inflates the entries of the file and nested archives, 
+	 * and the threads are stopped when the method returns.
+	 */
+	@Override
+	public void process(IClassListCallback c) {
+		if (parallelism > 1) {
+			ExecutorService inflaters = Executors.newFixedThreadPool(parallelism, new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "soba-inflater");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+			try {
+				processArchive(zip, zip.getAbsolutePath(), inflaters, c);
+			} finally {
+				inflaters.shutdownNow();
+			}
+		} else {
+			processArchive(zip, zip.getAbsolutePath(), null, c);
+		}
+	}
+	
+	/**
+	 * Removes temporary files extracted from the file.
+	 */
+	@Override
+	public synchronized void close() {
+		for (File f: extracted.values()) {
+			f.delete();
+		}
+		extracted.clear();
+	}
+	
+	/**
+	 * @param file is a ZIP/JAR file to be processed.
+	 * @param zipFilename is a name of the file used as a prefix of entry names.
+	 * @param inflaters specifies worker threads inflating entries.
+	 * If null, entries are inflated by the caller thread.
+	 * @return true if the callback requests to stop the process.
+	 */
+	private boolean processArchive(File file, String zipFilename, ExecutorService inflaters, IClassListCallback c) {
+		try (java.util.zip.ZipFile archive = new java.util.zip.ZipFile(file)) {
+			List<ZipEntry> targets = new ArrayList<>();
+			Enumeration<? extends ZipEntry> entries = archive.entries();
+			while (entries.hasMoreElements()) {
+				ZipEntry entry = entries.nextElement();
+				if (entry.isDirectory()) continue;
+				if (c.isTarget(entry.getName()) ||
+					(searchRecursive && ZipFile.isZipFile(entry.getName()))) {
+					targets.add(entry);
+				}
+			}
+			if (inflaters != null) {
+				return processInParallel(archive, zipFilename, targets, inflaters, c);
+			} else {
+				for (ZipEntry entry: targets) {
+					boolean stop = processEntry(archive, zipFilename, entry, null, null, c);
+					if (stop) return true;
+				}
+				return false;
+			}
+		} catch (IOException e) {
+			return c.reportError(zipFilename, e);
+		} catch (RuntimeException e) {
+			return c.reportError(zipFilename, e);
+		}
+	}
+
+	/**
+	 * Inflates entries by worker threads.
+	 * The number of inflated entries waiting for the callback is bounded.
+	 * Entries that are not passed to the callback are cancelled when the method returns,
+	 * since the archive is closed.
+	 * @return true if the callback requests to stop the process.
+	 */
+	private boolean processInParallel(final java.util.zip.ZipFile archive, String zipFilename, List<ZipEntry> targets, ExecutorService inflaters, IClassListCallback c) {
+		LinkedList<Future<byte[]>> window = new LinkedList<>();
+		try {
+			int next = 0;
+			for (int i=0; i<targets.size(); ++i) {
+				while (next < targets.size() && window.size() < parallelism * LOOKAHEAD_PER_THREAD) {
+					final ZipEntry entry = targets.get(next++);
+					if (searchRecursive && ZipFile.isZipFile(entry.getName())) {
+						// A nested archive is processed by the caller thread.
+						window.add(null);
+					} else {
+						window.add(inflaters.submit(new Callable<byte[]>() {
+							@Override
+							public byte[] call() throws IOException {
+								return read(archive, entry);
+							}
+						}));
+					}
+				}
+				boolean stop = processEntry(archive, zipFilename, targets.get(i), window.poll(), inflaters, c);
+				if (stop) return true;
+			}
+			return false;
+		} finally {
+			for (Future<byte[]> f: window) {
+				if (f != null) f.cancel(true);
+			}
+		}
+	}
+
+	/**
+	 * @param inflated is the content of the entry inflated by a worker thread.
+	 * If null, the entry is read by the caller thread.
+	 * @param inflaters is passed to a nested archive.  It may be null.
+	 * @return true if the callback requests to stop the process.
+	 */
+	private boolean processEntry(java.util.zip.ZipFile archive, String zipFilename, ZipEntry entry, Future<byte[]> inflated, ExecutorService inflaters, IClassListCallback c) {
+		String entryName = zipFilename + "/" + entry.getName();
+		try {
+			if (c.isTarget(entry.getName())) {
+				byte[] bytes = (inflated != null) ? inflated.get() : read(archive, entry);
+				c.process(entryName, new ByteArrayInputStream(bytes));
+				return false;
+			} else {
+				return processArchive(extract(archive, entry, entryName), entryName, inflaters, c);
+			}
+		} catch (ExecutionException e) {
+			Exception cause = (e.getCause() instanceof Exception) ? (Exception)e.getCause() : e;
+			return c.reportError(entryName, cause);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return c.reportError(entryName, e);
+		} catch (IOException e) {
+			return c.reportError(entryName, e);
+		} catch (RuntimeException e) {
+			return c.reportError(entryName, e);
+		}
+	}
+
+	/**
+	 * Extracts a nested archive to a temporary file.
+	 * @param entryName identifies the nested archive.
+	 * @return the extracted file.  
+	 * If the archive has been already extracted, the same file is returned.
+	 */
+	private synchronized File extract(java.util.zip.ZipFile archive, ZipEntry entry, String entryName) throws IOException {
+		File f = extracted.get(entryName);
+		if (f == null || !f.exists()) {
+			f = File.createTempFile("soba", ".jar");
+			f.deleteOnExit();
+			try (InputStream stream = archive.getInputStream(entry)) {
+				Files.copy(stream, f.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			} catch (IOException e) {
+				f.delete();
+				throw e;
+			}
+			extracted.put(entryName, f);
+		}
+		return f;
+	}
+
+	private static byte[] read(java.util.zip.ZipFile archive, ZipEntry entry) throws IOException {
+		try (InputStream stream = archive.getInputStream(entry)) {
+			return FileUtil.readFully(stream);
+		}
+	}
+
+}
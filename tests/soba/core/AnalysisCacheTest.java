@@ -0,0 +1,133 @@
+package soba.core;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import soba.core.method.DataDependence;
+import soba.core.method.DataFlowEdge;
+import soba.util.IntPairProc;
+import soba.util.graph.DirectedGraph;
+
+public class AnalysisCacheTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static JavaProgram readProgram(AnalysisCache cache) {
+		ProgramOptions options = new ProgramOptions();
+		options.setAnalysisCache(cache);
+		return JavaProgramTest.readExampleProgram(options);
+	}
+
+	@Test
+	public void testAnalysisCache() throws Exception {
+		AnalysisCache cache = new AnalysisCache(folder.getRoot());
+		JavaProgram expected = JavaProgramTest.readExampleProgram();
+		JavaProgram analyzed = readProgram(cache);
+		compare(expected, analyzed);
+
+		JavaProgram restored = readProgram(cache);
+		compare(expected, restored);
+		for (ClassInfo c: restored.getClasses()) {
+			File f = new File(new File(folder.getRoot(), c.getHash().substring(0, 2)), c.getHash() + ".v" + AnalysisCache.FORMAT_VERSION);
+			assertThat(f.exists(), is(c.getMethodCount() > 0));
+			for (MethodInfo m: c.getMethods()) {
+				DataDependence dd = m.getDataDependence();
+				for (int i=0; i<m.getInstructionCount(); ++i) {
+					assertThat(dd.getFrame(i), is(nullValue()));
+				}
+			}
+		}
+		assertThat(cache.getReadFailureCount(), is(0L));
+		assertThat(cache.getWriteFailureCount(), is(0L));
+		assertThat(cache.getLastFailure(), is(nullValue()));
+	}
+
+	@Test
+	public void testBrokenFile() throws Exception {
+		AnalysisCache cache = new AnalysisCache(folder.getRoot());
+		JavaProgram expected = JavaProgramTest.readExampleProgram();
+		readProgram(cache).getClassInfo(ExampleProgram.CLASS_D).getMethod(0).getDataDependence();
+		String hash = expected.getClassInfo(ExampleProgram.CLASS_D).getHash();
+		File f = new File(new File(folder.getRoot(), hash.substring(0, 2)), hash + ".v" + AnalysisCache.FORMAT_VERSION);
+		try (FileOutputStream out = new FileOutputStream(f)) {
+			out.write(new byte[] { 0x53, 0x4f });
+		}
+
+		// A broken file is analyzed again and replaced
+		compare(expected, readProgram(cache));
+		assertThat(cache.getReadFailureCount(), is(1L));
+		assertThat(cache.getLastFailure(), is(instanceOf(IOException.class)));
+		assertThat(f.length(), is(greaterThan(2L)));
+		compare(expected, readProgram(cache));
+		assertThat(cache.getReadFailureCount(), is(1L));
+	}
+
+	@Test
+	public void testWriteFailure() throws Exception {
+		File file = folder.newFile("not-a-directory");
+		AnalysisCache cache = new AnalysisCache(file);
+		compare(JavaProgramTest.readExampleProgram(), readProgram(cache));
+		assertThat(cache.getWriteFailureCount(), is(greaterThan(0L)));
+		assertThat(cache.getReadFailureCount(), is(0L));
+		assertThat(cache.getLastFailure(), is(notNullValue()));
+	}
+
+	private static void compare(JavaProgram expected, JavaProgram actual) {
+		assertThat(actual.getClasses(), hasSize(expected.getClasses().size()));
+		for (ClassInfo c: expected.getClasses()) {
+			ClassInfo other = actual.getClassInfo(c.getClassName());
+			for (int methodIndex=0; methodIndex<c.getMethodCount(); ++methodIndex) {
+				MethodInfo m1 = c.getMethod(methodIndex);
+				MethodInfo m2 = other.getMethod(methodIndex);
+				assertThat(edges(m2.getControlFlow()), is(edges(m1.getControlFlow())));
+				assertThat(edges(m2.getConservativeControlFlow()), is(edges(m1.getConservativeControlFlow())));
+				assertThat(edges(m2.getControlDependence()), is(edges(m1.getControlDependence())));
+
+				DataDependence dd1 = m1.getDataDependence();
+				DataDependence dd2 = m2.getDataDependence();
+				assertThat(toString(dd2.getEdges()), is(toString(dd1.getEdges())));
+				assertThat(toString(dd2.getEdgesInSourceOrder()), is(toString(dd1.getEdgesInSourceOrder())));
+				for (int i=0; i<m1.getInstructionCount(); ++i) {
+					assertThat(dd2.getOperandCount(i), is(dd1.getOperandCount(i)));
+					assertThat(dd2.getDataDefinition(i), is(dd1.getDataDefinition(i)));
+				}
+				if (m1.hasMethodBody()) {
+					assertThat(dd2.getLocalVariables().getVariableEntryCount(), is(dd1.getLocalVariables().getVariableEntryCount()));
+				}
+			}
+		}
+	}
+
+	private static List<String> edges(DirectedGraph g) {
+		final List<String> edges = new ArrayList<>();
+		g.forEachEdge(new IntPairProc() {
+			@Override
+			public boolean execute(int elem1, int elem2) {
+				edges.add(elem1 + "->" + elem2);
+				return true;
+			}
+		});
+		return edges;
+	}
+
+	private static List<String> toString(List<DataFlowEdge> edges) {
+		List<String> result = new ArrayList<>(edges.size());
+		for (DataFlowEdge e: edges) {
+			result.add(e.getSourceInstruction() + "->" + e.getDestinationInstruction() + ":" +
+					e.getDestinationOperandIndex() + "/" + e.getDestinationOperandCount() + ":" +
+					e.getVariableIndex() + ":" + e.isLocal());
+		}
+		return result;
+	}
+}
@@ -0,0 +1,136 @@
+package soba.core;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+
+public class BoundedAnalysisCacheTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static JavaProgram readProgram(BoundedAnalysisCache cache) {
+		ProgramOptions options = new ProgramOptions();
+		options.setBoundedAnalysisCache(cache);
+		return JavaProgramTest.readExampleProgram(options);
+	}
+
+	private static List<MethodInfo> getMethods(JavaProgram program) {
+		List<MethodInfo> methods = new ArrayList<MethodInfo>();
+		for (ClassInfo c: program.getClasses()) {
+			methods.addAll(c.getMethods());
+		}
+		return methods;
+	}
+
+	@Test
+	public void testEntryBudget() {
+		JavaProgram expected = JavaProgramTest.readExampleProgram();
+		BoundedAnalysisCache cache = new BoundedAnalysisCache(3, 0);
+		JavaProgram program = readProgram(cache);
+		List<MethodInfo> methods = getMethods(program);
+		assertThat(methods.size(), is(greaterThan(3)));
+
+		for (MethodInfo m: methods) {
+			m.getDataDependence();
+			assertThat(cache.size(), is(lessThanOrEqualTo(3)));
+		}
+		assertThat(cache.getMissCount(), is((long)methods.size()));
+		assertThat(cache.getEvictionCount(), is((long)methods.size() - 3));
+		assertThat(methods.get(0).isFlowAvailable(), is(false));
+		assertThat(methods.get(methods.size() - 1).isFlowAvailable(), is(true));
+
+		// A released result is computed again
+		MethodInfo first = methods.get(0);
+		MethodInfo original = expected.getClassInfo(first.getClassName()).getMethods().get(0);
+		assertThat(first.getDataDependence().getEdges(), hasSize(original.getDataDependence().getEdges().size()));
+		assertThat(first.getControlFlow().getEdgeCount(), is(original.getControlFlow().getEdgeCount()));
+		assertThat(cache.getMissCount(), is((long)methods.size() + 1));
+		long hits = cache.getHitCount();
+		first.getDataDependence();
+		assertThat(cache.getHitCount(), is(hits + 1));
+
+		cache.clear();
+		assertThat(cache.size(), is(0));
+		assertThat(cache.getEstimatedBytes(), is(0L));
+		assertThat(first.isFlowAvailable(), is(false));
+	}
+
+	@Test
+	public void testSecondChance() {
+		BoundedAnalysisCache cache = new BoundedAnalysisCache(2, 0);
+		List<MethodInfo> methods = getMethods(readProgram(cache));
+		methods.get(0).getDataDependence();
+		methods.get(1).getDataDependence();
+		methods.get(0).getDataDependence();
+		assertThat(cache.getHitCount(), is(1L));
+
+		// The recently used method survives
+		methods.get(2).getDataDependence();
+		assertThat(cache.getEvictionCount(), is(1L));
+		assertThat(methods.get(0).isFlowAvailable(), is(true));
+		assertThat(methods.get(1).isFlowAvailable(), is(false));
+		assertThat(methods.get(2).isFlowAvailable(), is(true));
+	}
+
+	@Test
+	public void testReleaseOnlyEvictedResult() {
+		BoundedAnalysisCache cache = new BoundedAnalysisCache(0, 0);
+		MethodInfo m = getMethods(readProgram(cache)).get(0);
+		m.getDataDependence();
+
+		// A result evicted before the method was analyzed again does not release the current result
+		m.releaseFlow(new MethodInfo.Flow(null, null, null, null));
+		assertThat(m.isFlowAvailable(), is(true));
+
+		cache.clear();
+		assertThat(m.isFlowAvailable(), is(false));
+	}
+
+	@Test
+	public void testWithAnalysisCache() {
+		BoundedAnalysisCache cache = new BoundedAnalysisCache(0, 0);
+		ProgramOptions options = new ProgramOptions();
+		options.setBoundedAnalysisCache(cache);
+		options.setAnalysisCache(new AnalysisCache(folder.getRoot()));
+		JavaProgram program = JavaProgramTest.readExampleProgram(options);
+		ClassInfo c = program.getClassInfo(ExampleProgram.CLASS_D);
+		assertThat(c.getMethodCount(), is(greaterThan(1)));
+
+		// Writing the results of the class is not an access to the results
+		c.getMethod(0).getDataDependence();
+		assertThat(cache.getHitCount(), is(0L));
+		assertThat(cache.getMissCount(), is(1L));
+		assertThat(cache.size(), is(c.getMethodCount()));
+		c.getMethod(0).getDataDependence();
+		assertThat(cache.getHitCount(), is(1L));
+	}
+
+	@Test
+	public void testMemoryBudget() {
+		BoundedAnalysisCache unlimited = new BoundedAnalysisCache(0, 0);
+		List<MethodInfo> methods = getMethods(readProgram(unlimited));
+		for (MethodInfo m: methods) {
+			m.getDataDependence();
+		}
+		assertThat(unlimited.size(), is(methods.size()));
+		assertThat(unlimited.getEvictionCount(), is(0L));
+		long total = unlimited.getEstimatedBytes();
+		assertThat(total, is(greaterThan(0L)));
+
+		BoundedAnalysisCache cache = new BoundedAnalysisCache(0, total / 4);
+		methods = getMethods(readProgram(cache));
+		for (MethodInfo m: methods) {
+			m.getDataDependence();
+			assertThat(cache.size() == 1 || cache.getEstimatedBytes() <= total / 4, is(true));
+		}
+		assertThat(cache.getEvictionCount(), is(greaterThan(0L)));
+	}
+}
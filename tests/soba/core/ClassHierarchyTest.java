@@ -7,6 +7,7 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -17,6 +18,7 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 
 import soba.core.ClassHierarchy.FrozenHierarchyException;
+import soba.core.method.CallSite;
 import soba.core.method.FieldAccess;
 import soba.util.TestUtil;
 
@@ -134,6 +136,43 @@ public class ClassHierarchyTest implements ExampleProgram {
 		assertThat(supertypesOfI, containsInAnyOrder("java/lang/Object"));
 	}
 	
+	@Test
+	public void testIsSubtypeOf() {
+		assertThat(ch.isSubtypeOf(CLASS_H, CLASS_C), is(true));
+		assertThat(ch.isSubtypeOf(CLASS_H, CLASS_I), is(true));
+		assertThat(ch.isSubtypeOf(CLASS_C, CLASS_H), is(false));
+		assertThat(ch.isSubtypeOf(CLASS_E, CLASS_C), is(false));
+		assertThat(ch.isSubtypeOf(CLASS_C, CLASS_C), is(true));
+		assertThat(ch.isSubtypeOf("pkg/Unknown", "pkg/Unknown"), is(true));
+		assertThat(ch.isSubtypeOf("pkg/Unknown", CLASS_C), is(false));
+		assertThat(ch.isSubtypeOf(CLASS_C, "pkg/Unknown"), is(false));
+		checkSubtypeRelationships(ch);
+		
+		checkSubtypeRelationships(JavaProgramTest.readExampleProgram().getClassHierarchy());
+		
+		// A class whose super class is not registered
+		ch.unregisterClass(CLASS_D);
+		assertThat(ch.isSubtypeOf(CLASS_H, CLASS_C), is(false));
+		assertThat(ch.isSubtypeOf(CLASS_H, CLASS_D), is(true));
+		checkSubtypeRelationships(ch);
+		
+		// A broken hierarchy including a cycle
+		ch.registerSubtype(CLASS_C, CLASS_H);
+		assertThat(ch.isSubtypeOf(CLASS_C, CLASS_D), is(true));
+		checkSubtypeRelationships(ch);
+	}
+	
+	private void checkSubtypeRelationships(ClassHierarchy hierarchy) {
+		for (int superType=0; superType<hierarchy.getTypeCount(); ++superType) {
+			Collection<String> subtypes = hierarchy.getAllSubtypes(Collections.singleton(hierarchy.getTypeName(superType)));
+			for (int t=0; t<hierarchy.getTypeCount(); ++t) {
+				boolean expected = subtypes.contains(hierarchy.getTypeName(t));
+				assertThat(hierarchy.isSubtypeOf(t, superType), is(expected));
+				assertThat(hierarchy.isSubtypeOf(hierarchy.getTypeName(t), hierarchy.getTypeName(superType)), is(expected));
+			}
+		}
+	}
+	
 	@Test
 	public void testGetSuperInterfaces() {
 		Collection<String> superInterfaceOfH = ch.getSuperInterfaces(CLASS_D);
@@ -142,6 +181,44 @@ public class ClassHierarchyTest implements ExampleProgram {
 		assertThat(superInterfaceOfC, is(empty()));
 	}
 	
+	@Test
+	public void testTypeIds() {
+		int idC = ch.getTypeId(CLASS_C);
+		int idD = ch.getTypeId(CLASS_D);
+		int idObject = ch.getTypeId("java/lang/Object");
+		assertThat(ch.getTypeId("pkg/Unknown"), is(-1));
+		assertThat(ch.getTypeName(idC), is(CLASS_C));
+		assertThat(ch.getTypeCount(), is(10));
+		assertThat(ch.getClassInfo(idC), is(c));
+		assertThat(ch.getClassInfo(idObject), is(nullValue()));
+		assertThat(ch.getSuperClassId(idD), is(idC));
+		assertThat(ch.getSuperClassId(idC), is(idObject));
+		assertThat(ch.getSuperClassId(idObject), is(-1));
+		assertThat(getTypeNames(ch.getSuperInterfaceIds(idD)), containsInAnyOrder(CLASS_I, CLASS_K));
+		assertThat(getTypeNames(ch.getSubtypeIds(idC)), containsInAnyOrder(CLASS_D, CLASS_F, CLASS_G));
+		assertThat(getTypeNames(ch.getSubtypeIds(idC)), contains(ch.getSubtypes(CLASS_C).toArray()));
+		assertThat(ch.listAllSuperTypes("pkg/Unknown[]"), containsInAnyOrder("java/lang/Object"));
+		
+		// IDs are kept after modifications
+		ch.unregisterClass(CLASS_D);
+		assertThat(ch.getTypeId(CLASS_D), is(idD));
+		assertThat(ch.getTypeId(CLASS_C), is(idC));
+		assertThat(ch.getClassInfo(idD), is(nullValue()));
+		assertThat(getTypeNames(ch.getSubtypeIds(idC)), containsInAnyOrder(CLASS_F, CLASS_G));
+		assertThat(ch.getAllSubtypes(Collections.singleton(CLASS_C)), containsInAnyOrder(CLASS_C, CLASS_F, CLASS_G));
+		ch.registerClass(d);
+		assertThat(ch.getTypeId(CLASS_D), is(idD));
+		assertThat(ch.getAllSubtypes(Collections.singleton(CLASS_C)), containsInAnyOrder(CLASS_C, CLASS_D, CLASS_H, CLASS_F, CLASS_G));
+	}
+	
+	private List<String> getTypeNames(int[] typeIds) {
+		List<String> names = new ArrayList<>();
+		for (int id: typeIds) {
+			names.add(ch.getTypeName(id));
+		}
+		return names;
+	}
+	
 	@Test
 	public void testResolveCall01() {
 		MethodInfo[] methodMain = ch.resolveCall(CLASS_E, "main", "([Ljava/lang/String;)V", false);
@@ -205,6 +282,22 @@ public class ClassHierarchyTest implements ExampleProgram {
 		assertThat(ch.resolveField(FieldAccess.createGetField(CLASS_I, "x", "I", true)).getClassName(), is(CLASS_I));
 		assertThat(ch.resolveField(FieldAccess.createGetField(CLASS_J, "x", "I", true)).getClassName(), is(CLASS_J));
 		assertThat(ch.resolveField(FieldAccess.createGetField(CLASS_K, "x", "I", true)).getClassName(), is(CLASS_I));
+		assertThat(ch.resolveField(FieldAccess.createGetField(CLASS_D, "undefined", "I", false)), is(nullValue()));
+		assertThat(ch.resolveField(FieldAccess.createGetField("pkg/Unknown", "x", "I", true)), is(nullValue()));
+	}
+	
+	@Test
+	public void testFieldsAfterFreeze() {
+		FieldInfo x = ch.resolveInstanceField(CLASS_D, "x", "I");
+		ch.freeze();
+		assertThat(ch.resolveInstanceField(CLASS_D, "x", "I"), is(sameInstance(x)));
+		assertThat(ch.resolveInstanceField(CLASS_D, "x", "I"), is(sameInstance(x)));
+		assertThat(ch.resolveInstanceFieldOwner(CLASS_D, "x", "I"), is(CLASS_C));
+		assertThat(ch.resolveStaticField(CLASS_K, "x", "I").getClassName(), is(CLASS_I));
+		assertThat(ch.resolveStaticFieldOwner(CLASS_K, "x", "I"), is(CLASS_I));
+		assertThat(ch.resolveStaticField(CLASS_K, "undefined", "I"), is(nullValue()));
+		assertThat(ch.resolveStaticField(CLASS_K, "undefined", "I"), is(nullValue()));
+		assertThat(ch.resolveInstanceField(null, "x", "I"), is(nullValue()));
 	}
 	
 	private void checkClasses(MethodInfo[] resolved, String... classNames) {
@@ -215,6 +308,96 @@ public class ClassHierarchyTest implements ExampleProgram {
 		assertThat(classes, containsInAnyOrder(classNames));
 	}
 	
+	@Test
+	public void testResolveCallAfterFreeze() {
+		MethodInfo[] methodsN = ch.resolveCall(CLASS_C, "n", "()V", true);
+		MethodInfo[] methodN = ch.resolveCall(CLASS_C, "n", "()V", false);
+		ch.freeze();
+		MethodInfo[] cached = ch.resolveCall(CLASS_C, "n", "()V", true);
+		assertThat(cached, is(methodsN));
+		assertThat(ch.resolveCall(CLASS_C, "n", "()V", false), is(methodN));
+		
+		// A caller cannot modify the cached result
+		cached[0] = null;
+		assertThat(ch.resolveCall(CLASS_C, "n", "()V", true), is(methodsN));
+		assertThat(ch.resolveCall("pkg/Unknown", "n", "()V", true), is(emptyArray()));
+	}
+	
+	@Test
+	public void testVisibleMethods() {
+		JavaProgram program = JavaProgramTest.readExampleProgram();
+		ClassHierarchy frozen = JavaProgramTest.readExampleProgram().getClassHierarchy();
+		frozen.freeze();
+		int count = 0;
+		for (ClassInfo c: program.getClasses()) {
+			for (MethodInfo m: c.getMethods()) {
+				for (CallSite cs: m.getCallSites()) {
+					for (boolean dynamic: new boolean[] {true, false}) {
+						MethodInfo[] expected = program.getClassHierarchy().resolveCall(cs.getClassName(), cs.getMethodName(), cs.getDescriptor(), dynamic);
+						MethodInfo[] actual = frozen.resolveCall(cs.getClassName(), cs.getMethodName(), cs.getDescriptor(), dynamic);
+						assertThat(actual.length, is(expected.length));
+						for (int i=0; i<expected.length; ++i) {
+							assertThat(actual[i].toString(), is(expected[i].toString()));
+						}
+						count++;
+					}
+				}
+			}
+		}
+		assertThat(count, is(greaterThan(0)));
+		assertThat(frozen.getRequestedClasses(), is(program.getClassHierarchy().getRequestedClasses()));
+	}
+	
+	@Test
+	public void testConcurrentQueries() throws InterruptedException {
+		final JavaProgram program = JavaProgramTest.readExampleProgram();
+		final ClassHierarchy frozen = JavaProgramTest.readExampleProgram().getClassHierarchy();
+		frozen.freeze();
+		final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+		Thread[] threads = new Thread[4];
+		for (int t=0; t<threads.length; ++t) {
+			final int offset = t;
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						for (int n=0; n<100; ++n) {
+							frozen.getClassInfo("pkg/Missing" + (n + offset));
+							frozen.getSuperClass("pkg/Missing" + (n + offset));
+							for (ClassInfo c: program.getClasses()) {
+								for (MethodInfo m: c.getMethods()) {
+									for (CallSite cs: m.getCallSites()) {
+										frozen.resolveCall(cs);
+									}
+								}
+							}
+						}
+					} catch (Throwable e) {
+						errors.add(e);
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread t: threads) {
+			t.join();
+		}
+		assertThat(errors, is(empty()));
+		
+		ClassHierarchy h = program.getClassHierarchy();
+		for (int n=0; n<103; ++n) {
+			h.getClassInfo("pkg/Missing" + n);
+		}
+		for (ClassInfo c: program.getClasses()) {
+			for (MethodInfo m: c.getMethods()) {
+				for (CallSite cs: m.getCallSites()) {
+					h.resolveCall(cs);
+				}
+			}
+		}
+		assertThat(frozen.getRequestedClasses(), is(h.getRequestedClasses()));
+	}
+	
 	@Test
 	public void testFreeze() {
 		assertThat(ch.isFrozen(), is(false));
@@ -241,4 +424,30 @@ public class ClassHierarchyTest implements ExampleProgram {
 		} catch (FrozenHierarchyException e) {
 		}
 	}
+	
+	@Test
+	public void testUnfreeze() {
+		ch.freeze();
+		checkClasses(ch.resolveCall(CLASS_C, "m", "()V", true), CLASS_C, CLASS_D);
+		assertThat(ch.resolveInstanceFieldOwner(CLASS_D, "x", "I"), is(CLASS_C));
+		FieldInfo x = ch.resolveStaticField(CLASS_K, "x", "I");
+		
+		ch.unfreeze();
+		assertThat(ch.isFrozen(), is(false));
+		ch.unregisterClass(CLASS_D);
+		// Cached results are not used until the hierarchy is frozen
+		checkClasses(ch.resolveCall(CLASS_C, "m", "()V", true), CLASS_C);
+		ch.freeze();
+		checkClasses(ch.resolveCall(CLASS_C, "m", "()V", true), CLASS_C);
+		assertThat(ch.resolveInstanceFieldOwner(CLASS_D, "x", "I"), is(nullValue()));
+		assertThat(ch.resolveCall(CLASS_D, "m", "()V", true), is(emptyArray()));
+		assertThat(ch.resolveStaticField(CLASS_K, "x", "I"), is(sameInstance(x)));
+		
+		ch.unfreeze();
+		ch.registerClass(d);
+		ch.freeze();
+		checkClasses(ch.resolveCall(CLASS_C, "m", "()V", true), CLASS_C, CLASS_D);
+		assertThat(ch.resolveInstanceFieldOwner(CLASS_D, "x", "I"), is(CLASS_C));
+		checkClasses(ch.resolveCall(CLASS_H, "m", "()V", true), CLASS_D);
+	}
 }
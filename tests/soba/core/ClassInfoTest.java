@@ -10,6 +10,7 @@ import java.io.IOException;
 import org.junit.Test;
 
 import soba.util.TestUtil;
+import soba.util.files.FileUtil;
 
 public class ClassInfoTest implements ExampleProgram {
 
@@ -74,6 +75,32 @@ public class ClassInfoTest implements ExampleProgram {
 		assertThat(c.findField("x", "I"), is(notNullValue()));
 	}
 	
+	@Test
+	public void testLazyClassInfo() throws IOException {
+		File f = TestUtil.getTestFile(CLASS_D + ".class");
+		ClassInfo full = new ClassInfo(f.getPath(), new FileInputStream(f));
+		ClassInfo lazy = new ClassInfo(f.getPath(), FileUtil.readFully(new FileInputStream(f)), null, ClassInfo.ParseProfile.LAZY);
+		
+		assertThat(lazy.getParseProfile(), is(ClassInfo.ParseProfile.LAZY));
+		assertThat(lazy.getClassName(), is(CLASS_D));
+		assertThat(lazy.getSuperClass(), is(CLASS_C));
+		assertThat(lazy.getInterfaces(), is(full.getInterfaces()));
+		assertThat(lazy.getHash(), is(full.getHash()));
+		assertThat(lazy.getMethodCount(), is(full.getMethodCount()));
+		for (int i=0; i<full.getMethodCount(); ++i) {
+			MethodInfo expected = full.getMethod(i);
+			MethodInfo m = lazy.findMethod(expected.getMethodName(), expected.getDescriptor());
+			assertThat(m, is(notNullValue()));
+			assertThat(m.hasMethodBody(), is(expected.hasMethodBody()));
+			assertThat(m.getInstructionCount(), is(expected.getInstructionCount()));
+			assertThat(m.getMaxLine(), is(expected.getMaxLine()));
+			assertThat(m.getCallSites(), hasSize(expected.getCallSites().size()));
+		}
+		MethodInfo example = lazy.findMethod("example", "(IJDLjava/lang/String;)I");
+		assertThat(example.getParamName(4), is("s"));
+		assertThat(example.getDataDependence().getEdges(), hasSize(full.findMethod("example", "(IJDLjava/lang/String;)I").getDataDependence().getEdges().size()));
+	}
+	
 	@Test
 	public void testLibrary01() throws IOException {
 		File f = TestUtil.getTestFile(CLASS_H + ".class");
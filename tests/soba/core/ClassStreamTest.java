@@ -0,0 +1,67 @@
+package soba.core;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import soba.util.TestUtil;
+import soba.util.files.Directory;
+import soba.util.files.IClassList;
+
+public class ClassStreamTest implements ExampleProgram {
+
+	@Test
+	public void testClassStream() {
+		File d = TestUtil.getTestFile("soba/testdata/");
+		IClassList[] lists = new IClassList[] {new Directory(d), new Directory(d)};
+		JavaProgram program = new JavaProgram(lists, null);
+
+		ClassStream stream = new ClassStream(lists, null);
+		assertThat(readClasses(stream), is(getClassFileNames(program.getClasses())));
+		assertThat(stream.getClassHierarchy(), is(nullValue()));
+		assertThat(stream.getErrors(), is(empty()));
+
+		ProgramOptions options = new ProgramOptions();
+		options.setParallelism(4);
+		ClassStream parallel = new ClassStream(lists, null, options);
+		parallel.enableClassHierarchy();
+		assertThat(readClasses(parallel), is(getClassFileNames(program.getClasses())));
+
+		ClassHierarchy h = parallel.getClassHierarchy();
+		assertThat(h.getClassCount(), is(22));
+		assertThat(h.getSuperClass(CLASS_D), is(CLASS_C));
+		assertThat(h.getSubtypes(CLASS_C), containsInAnyOrder(CLASS_D, CLASS_F, CLASS_G));
+		assertThat(h.getSubtypes(CLASS_I), containsInAnyOrder(CLASS_D, CLASS_K));
+
+		ClassInfo c = h.getClassInfo(CLASS_D);
+		assertThat(c.getParseProfile(), is(ClassInfo.ParseProfile.SIGNATURES));
+		assertThat(c.getMethodCount(), is(11));
+		assertThat(c.findMethod("m", "()V").getInstructionCount(), is(0));
+		assertThat(h.resolveCall(CLASS_C, "m", "()V", true), is(arrayWithSize(program.getClassHierarchy().resolveCall(CLASS_C, "m", "()V", true).length)));
+	}
+
+	private static List<String> readClasses(ClassStream stream) {
+		final List<String> names = new ArrayList<>();
+		stream.process(new ClassStream.IClassProcessor() {
+			@Override
+			public void process(ClassInfo c) {
+				assertThat(c.getParseProfile(), is(ClassInfo.ParseProfile.FULL));
+				names.add(c.getClassFileName());
+			}
+		});
+		return names;
+	}
+
+	private static List<String> getClassFileNames(List<ClassInfo> classes) {
+		List<String> names = new ArrayList<>();
+		for (ClassInfo c: classes) {
+			names.add(c.getClassFileName());
+		}
+		return names;
+	}
+}
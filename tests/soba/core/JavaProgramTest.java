@@ -1,7 +1,14 @@
 package soba.core;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.util.ArrayList;
+import java.util.List;
 
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+
+import soba.core.vta.VTAResolver;
 import soba.util.TestUtil;
 import soba.util.files.Directory;
 import soba.util.files.IClassList;
@@ -16,9 +23,16 @@ public class JavaProgramTest implements ExampleProgram {
 	private static JavaProgram program;
 	
 	public static JavaProgram readExampleProgram() {
+		return readExampleProgram(new ProgramOptions());
+	}
+	
+	/**
+	 * Loads the example program with the specified options.
+	 */
+	public static JavaProgram readExampleProgram(ProgramOptions options) {
 		File d = TestUtil.getTestFile("soba/testdata/");
 		Directory dir = new Directory(d);
-		JavaProgram program = new JavaProgram(new IClassList[] {dir});
+		JavaProgram program = new JavaProgram(new IClassList[] {dir}, null, options);
 		return program;
 	}
 	
@@ -50,4 +64,242 @@ public class JavaProgramTest implements ExampleProgram {
 		assertThat(program.getClassInfo("NotExistClass"), is(nullValue()));
 	}
 
+	@Test
+	public void testParallelLoading() {
+		File d = TestUtil.getTestFile("soba/testdata/");
+		IClassList[] lists = new IClassList[] {new Directory(d), new Directory(d)};
+		JavaProgram sequential = new JavaProgram(lists, null);
+		ProgramOptions options = new ProgramOptions();
+		options.setParallelism(4);
+		JavaProgram parallel = new JavaProgram(lists, null, options);
+
+		assertThat(parallel.getClasses(), hasSize(22));
+		assertThat(parallel.getDuplicated(), hasSize(22));
+		assertThat(parallel.getErrors(), is(empty()));
+		assertThat(getClassFileNames(parallel.getClasses()), is(getClassFileNames(sequential.getClasses())));
+		assertThat(getClassFileNames(parallel.getDuplicated()), is(getClassFileNames(sequential.getDuplicated())));
+		assertThat(parallel.getClassHierarchy().getClassCount(), is(22));
+	}
+	
+	@Test
+	public void testUpdateClass() throws Exception {
+		JavaProgram p = readExampleProgram();
+		ClassHierarchy ch = p.getClassHierarchy();
+		ClassInfo d = p.getClassInfo(CLASS_D);
+
+		assertThat(p.removeClass(CLASS_D), containsInAnyOrder(CLASS_D, CLASS_H, CLASS_C, CLASS_I, CLASS_K, "java/lang/Object"));
+		assertThat(p.getClassInfo(CLASS_D), is(nullValue()));
+		assertThat(p.getClasses(), hasSize(21));
+		assertThat(ch.getClassCount(), is(21));
+		assertThat(ch.getSubtypes(CLASS_C), not(hasItem(CLASS_D)));
+		assertThat(ch.getSubtypes(CLASS_I), not(hasItem(CLASS_D)));
+		assertThat(p.removeClass(CLASS_D), is(empty()));
+
+		assertThat(p.updateClass(d), containsInAnyOrder(CLASS_D, CLASS_H, CLASS_C, CLASS_I, CLASS_K, "java/lang/Object"));
+		assertThat(p.getClassInfo(CLASS_D), is(d));
+		assertThat(ch.getSubtypes(CLASS_C), hasItem(CLASS_D));
+
+		// The same content is ignored
+		File f = TestUtil.getTestFile(CLASS_D + ".class");
+		ClassInfo same = new ClassInfo(f.getPath(), new FileInputStream(f));
+		assertThat(p.updateClass(same), is(empty()));
+		assertThat(p.getClassInfo(CLASS_D), is(d));
+
+		// D is replaced by a class without a super class and interfaces.
+		ClassWriter w = new ClassWriter(0);
+		w.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, CLASS_D, null, "java/lang/Object", null);
+		w.visitEnd();
+		ClassInfo replaced = new ClassInfo(CLASS_D + ".class", w.toByteArray());
+		assertThat(p.updateClass(replaced), containsInAnyOrder(CLASS_D, CLASS_H, CLASS_C, CLASS_I, CLASS_K, "java/lang/Object"));
+		assertThat(p.getClassInfo(CLASS_D), is(replaced));
+		assertThat(p.getClasses(), hasSize(22));
+		assertThat(p.getClasses(), not(hasItem(d)));
+		assertThat(ch.getSuperClass(CLASS_D), is("java/lang/Object"));
+		assertThat(ch.getSubtypes(CLASS_C), not(hasItem(CLASS_D)));
+		assertThat(ch.getSubtypes("java/lang/Object"), hasItem(CLASS_D));
+
+		// A frozen hierarchy is updated and frozen again
+		ch.freeze();
+		assertThat(p.removeClass(CLASS_D), hasItem(CLASS_D));
+		assertThat(ch.isFrozen(), is(true));
+		assertThat(p.getClassInfo(CLASS_D), is(nullValue()));
+		assertThat(ch.getClassInfo(CLASS_D), is(nullValue()));
+	}
+	
+	@Test
+	public void testUpdateClassInThreeLevels() throws Exception {
+		// C <- D <- H, where D implements I and K, and K extends I
+		JavaProgram p = readExampleProgram();
+		ClassHierarchy ch = p.getClassHierarchy();
+		assertThat(ch.resolveCall(CLASS_H, "m", "()V", true)[0].getClassName(), is(CLASS_D));
+
+		// The middle class is replaced by a class having the same parents and no methods
+		ClassWriter w = new ClassWriter(0);
+		w.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, CLASS_D, null, CLASS_C, new String[] {CLASS_I, CLASS_K});
+		w.visitEnd();
+		ClassInfo d = new ClassInfo(CLASS_D + ".class", w.toByteArray());
+		assertThat(p.updateClass(d), containsInAnyOrder(CLASS_D, CLASS_H, CLASS_C, CLASS_I, CLASS_K, "java/lang/Object"));
+		assertThat(ch.resolveCall(CLASS_H, "m", "()V", true)[0].getClassName(), is(CLASS_C));
+
+		// The top class changes the sub-types of all the ancestors of the new parent
+		w = new ClassWriter(0);
+		w.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, CLASS_C, null, "java/lang/Object", new String[] {CLASS_K});
+		w.visitEnd();
+		ClassInfo c = new ClassInfo(CLASS_C + ".class", w.toByteArray());
+		assertThat(p.updateClass(c), hasItems(CLASS_C, CLASS_D, CLASS_H, CLASS_F, CLASS_G, CLASS_K, CLASS_I, "java/lang/Object"));
+		assertThat(ch.isSubtypeOf(CLASS_H, CLASS_K), is(true));
+
+		// Removing the bottom class changes all the ancestors
+		assertThat(p.removeClass(CLASS_H), containsInAnyOrder(CLASS_H, CLASS_D, CLASS_C, CLASS_I, CLASS_K, "java/lang/Object"));
+	}
+	
+	@Test
+	public void testClassInfoPool() {
+		ClassInfoPool pool = new ClassInfoPool();
+		ProgramOptions options = new ProgramOptions();
+		options.setClassInfoPool(pool);
+		JavaProgram p1 = readExampleProgram(options);
+		assertThat(pool.size(), is(22));
+
+		options.setParallelism(4);
+		JavaProgram p2 = readExampleProgram(options);
+		assertThat(pool.size(), is(22));
+		assertThat(p2.getClasses(), hasSize(22));
+		for (ClassInfo c: p1.getClasses()) {
+			assertThat(p2.getClassInfo(c.getClassName()), is(sameInstance(c)));
+		}
+		
+		options.setParseProfile(ClassInfo.ParseProfile.LAZY);
+		JavaProgram p3 = readExampleProgram(options);
+		assertThat(pool.size(), is(44));
+		assertThat(p3.getClassInfo(CLASS_C), is(not(sameInstance(p1.getClassInfo(CLASS_C)))));
+		
+		// A removed class is parsed again
+		assertThat(pool.remove(p1.getClassInfo(CLASS_C).getHash()), is(2));
+		assertThat(pool.size(), is(42));
+		JavaProgram p4 = readExampleProgram(options);
+		assertThat(pool.size(), is(43));
+		assertThat(p4.getClassInfo(CLASS_C), is(not(sameInstance(p3.getClassInfo(CLASS_C)))));
+		assertThat(p4.getClassInfo(CLASS_D), is(sameInstance(p3.getClassInfo(CLASS_D))));
+		
+		pool.clear();
+		assertThat(pool.size(), is(0));
+	}
+	
+	@Test
+	public void testLibraryParseProfile() {
+		File d = TestUtil.getTestFile("soba/testdata/");
+		Directory app = new Directory(d);
+		Directory lib = new Directory(d);
+		lib.setLabel(ClassInfo.LIBRARY_LABEL);
+		ProgramOptions options = new ProgramOptions();
+		options.setLibraryParseProfile(ClassInfo.ParseProfile.HEADER);
+		for (int parallelism: new int[] {1, 4}) {
+			options.setParallelism(parallelism);
+			JavaProgram p = new JavaProgram(new IClassList[] {app, lib}, null, options);
+			assertThat(p.getClasses(), hasSize(22));
+			for (ClassInfo c: p.getClasses()) {
+				assertThat(c.getParseProfile(), is(ClassInfo.ParseProfile.FULL));
+				assertThat(c.isBodyAvailable(), is(true));
+			}
+			assertThat(p.getDuplicated(), hasSize(22));
+			for (ClassInfo c: p.getDuplicated()) {
+				assertThat(c.getParseProfile(), is(ClassInfo.ParseProfile.HEADER));
+				assertThat(c.isBodyAvailable(), is(false));
+				assertThat(c.getMethodCount(), is(0));
+				assertThat(c.getFieldCount(), is(0));
+			}
+		}
+		
+		options.setParallelism(1);
+		options.setLibraryParseProfile(ClassInfo.ParseProfile.SIGNATURES);
+		JavaProgram stubs = new JavaProgram(new IClassList[] {lib}, null, options);
+		ClassHierarchy h = stubs.getClassHierarchy();
+		assertThat(h.getSuperClass(CLASS_D), is(CLASS_C));
+		assertThat(h.getSubtypes(CLASS_I), containsInAnyOrder(CLASS_D, CLASS_K));
+		ClassInfo c = stubs.getClassInfo(CLASS_C);
+		assertThat(c.getParseProfile(), is(ClassInfo.ParseProfile.SIGNATURES));
+		MethodInfo m = c.findMethod("n", "()V");
+		assertThat(m.hasMethodBody(), is(true));
+		assertThat(m.isBodyAvailable(), is(false));
+		assertThat(h.resolveCall(CLASS_C, "n", "()V", true), is(arrayWithSize(4)));
+		
+		assertThat(m.getCallSites(), is(empty()));
+		
+		// Stub methods are not analyzed
+		new VTAResolver(stubs);
+	}
+	
+	@Test
+	public void testAnalyzeAll() throws Exception {
+		JavaProgram expected = readExampleProgram();
+		JavaProgram analyzed = readExampleProgram();
+		analyzed.analyzeAll(4);
+		for (ClassInfo c: expected.getClasses()) {
+			ClassInfo other = analyzed.getClassInfo(c.getClassName());
+			for (int i=0; i<c.getMethodCount(); ++i) {
+				MethodInfo m = c.getMethod(i);
+				MethodInfo m2 = other.getMethod(i);
+				assertThat(m2.getDataDependence(), is(sameInstance(m2.getDataDependence())));
+				assertThat(m2.getDataDependence().getEdges(), hasSize(m.getDataDependence().getEdges().size()));
+				assertThat(m2.getControlFlow().getEdgeCount(), is(m.getControlFlow().getEdgeCount()));
+			}
+		}
+		
+		// Methods are analyzed once even if they are requested by multiple threads
+		final JavaProgram p = readExampleProgram();
+		final MethodInfo m = p.getClassInfo(CLASS_D).getMethods().get(0);
+		final Object[] results = new Object[8];
+		Thread[] threads = new Thread[results.length];
+		for (int i=0; i<threads.length; ++i) {
+			final int index = i;
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					results[index] = m.getDataDependence();
+				}
+			};
+			threads[i].start();
+		}
+		for (Thread t: threads) {
+			t.join();
+		}
+		for (Object r: results) {
+			assertThat(r, is(sameInstance(results[0])));
+		}
+		
+		// Parameters and lines are also available to multiple threads
+		final MethodInfo example = p.getClassInfo(CLASS_D).findMethod("example", "(IJDLjava/lang/String;)I");
+		final MethodInfo expectedExample = expected.getClassInfo(CLASS_D).findMethod("example", "(IJDLjava/lang/String;)I");
+		final boolean[] consistent = new boolean[threads.length];
+		for (int i=0; i<threads.length; ++i) {
+			final int index = i;
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					consistent[index] = example.getParamCount() == expectedExample.getParamCount() &&
+							example.getVariableTableIndexOfParamAt(4) == expectedExample.getVariableTableIndexOfParamAt(4) &&
+							example.getParamType(4).equals(expectedExample.getParamType(4)) &&
+							example.getMaxLine() == expectedExample.getMaxLine() &&
+							example.getLineNumbers().length == expectedExample.getLineNumbers().length;
+				}
+			};
+			threads[i].start();
+		}
+		for (Thread t: threads) {
+			t.join();
+		}
+		for (boolean b: consistent) {
+			assertThat(b, is(true));
+		}
+	}
+	
+	private static List<String> getClassFileNames(List<ClassInfo> classes) {
+		List<String> names = new ArrayList<>();
+		for (ClassInfo c: classes) {
+			names.add(c.getClassFileName());
+		}
+		return names;
+	}
+
 }
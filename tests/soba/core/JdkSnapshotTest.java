@@ -0,0 +1,108 @@
+package soba.core;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+import static soba.core.ExampleProgram.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import soba.util.TestUtil;
+import soba.util.files.Directory;
+import soba.util.files.IClassList;
+
+public class JdkSnapshotTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testWriteAndLoad() throws Exception {
+		Map<String, byte[]> classes = new HashMap<String, byte[]>();
+		for (String className: new String[] {CLASS_C, CLASS_D, CLASS_I, CLASS_K}) {
+			classes.put(className, Files.readAllBytes(TestUtil.getTestFile(className + ".class").toPath()));
+		}
+		File f = new File(folder.getRoot(), "test.snapshot");
+		JdkSnapshot.write(f, "test", classes);
+
+		JdkSnapshot snapshot = JdkSnapshot.load(f);
+		assertThat(snapshot.getJavaVersion(), is("test"));
+		assertThat(snapshot.size(), is(4));
+		assertThat(snapshot.contains(CLASS_C), is(true));
+		assertThat(snapshot.contains(CLASS_K), is(true));
+		assertThat(snapshot.contains(CLASS_G), is(false));
+		assertThat(snapshot.contains("soba"), is(false));
+		assertThat(snapshot.getClassInfo(CLASS_G), is(nullValue()));
+
+		ClassInfo d = snapshot.getClassInfo(CLASS_D);
+		assertThat(d.getClassName(), is(CLASS_D));
+		assertThat(d.getSuperClass(), is(CLASS_C));
+		assertThat(d.getInterfaces(), contains(CLASS_I, CLASS_K));
+		assertThat(d.isLibrary(), is(true));
+		assertThat(snapshot.getClassInfo(CLASS_D), is(sameInstance(d)));
+	}
+
+	@Test
+	public void testChainWithLibraryIndex() throws Exception {
+		Map<String, byte[]> classes = new HashMap<String, byte[]>();
+		for (String className: new String[] {CLASS_C, CLASS_I, CLASS_K}) {
+			classes.put(className, Files.readAllBytes(TestUtil.getTestFile(className + ".class").toPath()));
+		}
+		File f = new File(folder.getRoot(), "test.snapshot");
+		JdkSnapshot.write(f, "test", classes);
+		JdkSnapshot snapshot = JdkSnapshot.load(f);
+
+		try (LibraryIndex index = new LibraryIndex()) {
+			index.add(TestUtil.getTestFile(""));
+			ProgramOptions options = new ProgramOptions();
+			options.addClassProvider(snapshot);
+			options.addClassProvider(index);
+			assertThat(options.getClassProvider(), is(instanceOf(ClassProviderChain.class)));
+			assertThat(((ClassProviderChain)options.getClassProvider()).getProviders(), contains((IClassProvider)snapshot, index));
+
+			Directory dir = new Directory(TestUtil.getTestFile("soba/testdata/inheritance2/"));
+			JavaProgram program = new JavaProgram(new IClassList[] {dir}, null, options);
+			ClassHierarchy ch = program.getClassHierarchy();
+			assertThat(ch.listAllSuperTypes(CLASS_H), containsInAnyOrder(CLASS_D, CLASS_C, CLASS_I, CLASS_K, "java/lang/Object"));
+			// The snapshot takes precedence over the index
+			assertThat(ch.getClassInfo(CLASS_C), is(sameInstance(snapshot.getClassInfo(CLASS_C))));
+			assertThat(ch.getClassInfo(CLASS_I), is(sameInstance(snapshot.getClassInfo(CLASS_I))));
+			assertThat(ch.getClassInfo(CLASS_D), is(sameInstance(index.getClassInfo(CLASS_D))));
+			assertThat(ch.getRequestedClasses(), hasItem("java/lang/Object"));
+		}
+	}
+
+	@Test
+	public void testRunningJdk() throws Exception {
+		File f = new File(folder.getRoot(), "jdk.snapshot");
+		try {
+			JdkSnapshot.create(f);
+		} catch (java.io.IOException e) {
+			// Java 8 does not provide jrt:/
+			Assume.assumeNoException(e);
+		}
+		JdkSnapshot snapshot = JdkSnapshot.load(f);
+		assertThat(snapshot.getJavaVersion(), is(System.getProperty("java.version")));
+		assertThat(snapshot.contains("java/lang/Object"), is(true));
+		ClassInfo list = snapshot.getClassInfo("java/util/ArrayList");
+		assertThat(list.getSuperClass(), is("java/util/AbstractList"));
+		assertThat(list.findMethod("size", "()I"), is(notNullValue()));
+		assertThat(list.findMethod("size", "()I").isBodyAvailable(), is(false));
+
+		ProgramOptions options = new ProgramOptions();
+		options.setClassProvider(snapshot);
+		Directory dir = new Directory(TestUtil.getTestFile("soba/testdata/inheritance1/"));
+		JavaProgram program = new JavaProgram(new IClassList[] {dir}, null, options);
+		ClassHierarchy ch = program.getClassHierarchy();
+		ch.freeze();
+		assertThat(ch.getClassInfo("java/lang/Object"), is(notNullValue()));
+		assertThat(ch.getRequestedClasses(), is(empty()));
+	}
+}
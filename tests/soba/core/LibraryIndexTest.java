@@ -0,0 +1,130 @@
+package soba.core;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+import static soba.core.ExampleProgram.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import soba.util.TestUtil;
+import soba.util.files.Directory;
+import soba.util.files.IClassList;
+
+public class LibraryIndexTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Creates a JAR file including the specified classes.
+	 */
+	private File createJar(String name, String... classNames) throws Exception {
+		File jar = new File(folder.getRoot(), name);
+		try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jar))) {
+			for (String className: classNames) {
+				out.putNextEntry(new ZipEntry(className + ".class"));
+				out.write(Files.readAllBytes(TestUtil.getTestFile(className + ".class").toPath()));
+				out.closeEntry();
+			}
+		}
+		return jar;
+	}
+
+	private static JavaProgram readProgram(IClassProvider provider) {
+		ProgramOptions options = new ProgramOptions();
+		options.setClassProvider(provider);
+		Directory dir = new Directory(TestUtil.getTestFile("soba/testdata/inheritance2/"));
+		return new JavaProgram(new IClassList[] {dir}, null, options);
+	}
+
+	@Test
+	public void testLibraryIndex() throws Exception {
+		try (LibraryIndex index = new LibraryIndex()) {
+			index.add(createJar("lib.jar", CLASS_C, CLASS_D, CLASS_G, CLASS_I, CLASS_K));
+			assertThat(index.size(), is(5));
+			assertThat(index.contains(CLASS_D), is(true));
+			assertThat(index.contains(CLASS_J), is(false));
+			assertThat(index.contains(CLASS_E), is(false));
+
+			ClassInfo d = index.getClassInfo(CLASS_D);
+			assertThat(d.getClassName(), is(CLASS_D));
+			assertThat(d.isLibrary(), is(true));
+			assertThat(d.isBodyAvailable(), is(false));
+			assertThat(index.getClassInfo(CLASS_D), is(sameInstance(d)));
+			assertThat(index.getClassInfo(CLASS_J), is(nullValue()));
+
+			index.add(TestUtil.getTestFile(""));
+			assertThat(index.contains(CLASS_J), is(true));
+			assertThat(index.getClassInfo(CLASS_J).getClassName(), is(CLASS_J));
+			assertThat(index.getClassInfo(CLASS_C).getClassFileName(), containsString("lib.jar"));
+		}
+	}
+
+	@Test
+	public void testLoadOnDemand() throws Exception {
+		try (LibraryIndex index = new LibraryIndex()) {
+			index.add(createJar("lib.jar", CLASS_C, CLASS_D, CLASS_G, CLASS_I, CLASS_K));
+			JavaProgram program = readProgram(index);
+			ClassHierarchy ch = program.getClassHierarchy();
+			assertThat(program.getClasses(), hasSize(4));
+			assertThat(ch.getClassCount(), is(4));
+
+			assertThat(ch.listAllSuperTypes(CLASS_H), containsInAnyOrder(CLASS_D, CLASS_C, CLASS_I, CLASS_K, "java/lang/Object"));
+			assertThat(ch.getClassCount(), is(8));
+			assertThat(ch.getClassInfo(CLASS_D).isLibrary(), is(true));
+			assertThat(program.getClassInfo(CLASS_D), is(nullValue()));
+			assertThat(ch.getRequestedClasses(), hasItem("java/lang/Object"));
+			assertThat(ch.getRequestedClasses(), not(hasItem(CLASS_D)));
+
+			assertThat(ch.getClassInfo(CLASS_G), is(notNullValue()));
+			assertThat(ch.getClassInfo(CLASS_J), is(nullValue()));
+			assertThat(ch.getRequestedClasses(), hasItem(CLASS_J));
+		}
+	}
+
+	@Test
+	public void testLoadOnFreeze() throws Exception {
+		try (LibraryIndex index = new LibraryIndex()) {
+			index.add(createJar("lib.jar", CLASS_C, CLASS_D, CLASS_G, CLASS_I, CLASS_K));
+			JavaProgram program = readProgram(index);
+			ClassHierarchy ch = program.getClassHierarchy();
+			ch.freeze();
+			assertThat(ch.getClassCount(), is(8));
+			assertThat(ch.isSubtypeOf(CLASS_H, CLASS_I), is(true));
+			assertThat(ch.getClassInfo(CLASS_G), is(nullValue()));
+		}
+	}
+
+	@Test
+	public void testSaveAndLoad() throws Exception {
+		File jar = createJar("lib.jar", CLASS_C, CLASS_D);
+		File saved = folder.newFile("index.bin");
+		try (LibraryIndex index = new LibraryIndex()) {
+			index.add(jar);
+			index.add(createJar("lib2.jar", CLASS_D, CLASS_I));
+			index.save(saved);
+		}
+		try (LibraryIndex index = LibraryIndex.load(saved)) {
+			assertThat(index.size(), is(3));
+			assertThat(index.getArchives(), hasSize(2));
+			assertThat(index.getClassInfo(CLASS_D).getClassFileName(), containsString("lib.jar"));
+		}
+
+		// A modified archive is indexed again
+		createJar("lib.jar", CLASS_C);
+		jar.setLastModified(jar.lastModified() - 10000);
+		try (LibraryIndex index = LibraryIndex.load(saved)) {
+			assertThat(index.contains(CLASS_C), is(true));
+			assertThat(index.getClassInfo(CLASS_D).getClassFileName(), containsString("lib2.jar"));
+			assertThat(index.size(), is(3));
+		}
+	}
+}
@@ -1,16 +1,22 @@
 package soba.core.method;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import static org.hamcrest.MatcherAssert.*;
 import static org.hamcrest.Matchers.*;
 
+import org.junit.Assert;
 import org.junit.BeforeClass;
+import org.objectweb.asm.tree.analysis.Frame;
 import org.junit.Test;
 
 import soba.core.JavaProgram;
 import soba.core.JavaProgramTest;
 import soba.core.MethodInfo;
+import soba.core.method.asm.FastSourceInterpreter;
+import soba.core.method.asm.FastSourceValue;
 import soba.util.UtilForAssertThat;
 import soba.util.graph.DirectedGraph;
 
@@ -160,6 +166,83 @@ public class DataDependenceTest {
 		assertThat(dd, is(notNullValue()));
 	}
 	
+	@Test
+	public void testEdgeIndexes() {
+		MethodInfo m = program.getClassInfo("soba/testdata/DefUseTestData").findMethod("localDataDependence", "()V");
+		DataDependence dd = m.getDataDependence();
+		List<DataFlowEdge> edges = dd.getEdges();
+		List<DataFlowEdge> sourceOrder = dd.getEdgesInSourceOrder();
+		int incoming = 0;
+		int outgoing = dd.getOutgoingEdgeEnd(FastSourceInterpreter.METHOD_ENTRY) - dd.getOutgoingEdgeStart(FastSourceInterpreter.METHOD_ENTRY);
+		for (int i=0; i<m.getInstructionCount(); ++i) {
+			for (int k=dd.getIncomingEdgeStart(i); k<dd.getIncomingEdgeEnd(i); ++k) {
+				assertThat(edges.get(k).getDestinationInstruction(), is(i));
+			}
+			for (int k=dd.getOutgoingEdgeStart(i); k<dd.getOutgoingEdgeEnd(i); ++k) {
+				assertThat(sourceOrder.get(k).getSourceInstruction(), is(i));
+			}
+			assertThat(dd.getIncomingEdges(i), hasSize(dd.getIncomingEdgeEnd(i) - dd.getIncomingEdgeStart(i)));
+			assertThat(dd.getOutgoingEdges(i), hasSize(dd.getOutgoingEdgeEnd(i) - dd.getOutgoingEdgeStart(i)));
+			for (int op=0; op<dd.getOperandCount(i); ++op) {
+				for (DataFlowEdge e: dd.getIncomingEdges(i, op)) {
+					assertThat(e.getDestinationInstruction(), is(i));
+					assertThat(e.getDestinationOperandIndex(), is(op));
+				}
+			}
+			incoming += dd.getIncomingEdges(i).size();
+			outgoing += dd.getOutgoingEdges(i).size();
+		}
+		assertThat(incoming, is(edges.size()));
+		assertThat(outgoing, is(edges.size()));
+		
+		List<DataFlowEdge> sorted = new ArrayList<DataFlowEdge>(edges);
+		Collections.sort(sorted, new DataFlowEdge.SourceComparator());
+		assertThat(sourceOrder, is(sorted));
+		DataFlowEdgeList list = dd.getEdgeList();
+		for (int k=0; k<sourceOrder.size(); ++k) {
+			int e = dd.getEdgeInSourceOrder(k);
+			assertThat(list.getSourceInstruction(e), is(sorted.get(k).getSourceInstruction()));
+			assertThat(list.getDestinationInstruction(e), is(sorted.get(k).getDestinationInstruction()));
+		}
+		
+		try {
+			edges.clear();
+			Assert.fail();
+		} catch (UnsupportedOperationException e) {
+		}
+	}
+	
+	@Test
+	public void testDebugMode() {
+		MethodInfo m = program.getClassInfo("soba/testdata/DefUseTestData").findMethod("overwriteParam", "(II)V");
+		DataDependence dd = m.getDataDependence();
+		for (int i=0; i<m.getInstructionCount(); ++i) {
+			assertThat(dd.getFrame(i), is(nullValue()));
+		}
+		
+		DataDependence.setDebugMode(true);
+		try {
+			JavaProgram debug = JavaProgramTest.readExampleProgram();
+			MethodInfo m2 = debug.getClassInfo("soba/testdata/DefUseTestData").findMethod("overwriteParam", "(II)V");
+			DataDependence dd2 = m2.getDataDependence();
+			assertThat(dd2.getFrame(0), is(notNullValue()));
+			for (int i=0; i<m2.getInstructionCount(); ++i) {
+				assertThat(dd2.getDataDefinition(i), is(dd.getDataDefinition(i)));
+				Frame<?> f = dd2.getFrame(i);
+				if (f == null) continue; // unreachable
+				int operands = dd2.getOperandCount(i);
+				if (dd2.useStack(i)) {
+					for (int op=0; op<operands; ++op) {
+						FastSourceValue v = (FastSourceValue)f.getStack(f.getStackSize() - operands + op);
+						assertThat(dd2.getDataDefinition(i)[op], is(v.getInstructions()));
+					}
+				}
+			}
+		} finally {
+			DataDependence.setDebugMode(false);
+		}
+	}
+	
 	private boolean containsEdge(List<DataFlowEdge> edges, int from, int to) {
 		for (DataFlowEdge e: edges) {
 			if (e.getSourceInstruction() == from 
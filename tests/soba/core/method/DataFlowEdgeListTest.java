@@ -0,0 +1,80 @@
+package soba.core.method;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import soba.core.method.asm.FastSourceInterpreter;
+
+
+public class DataFlowEdgeListTest {
+
+	@Test
+	public void testAdd() {
+		DataFlowEdgeList list = new DataFlowEdgeList(1);
+		list.add(FastSourceInterpreter.METHOD_ENTRY, 2, 0, 1, 1, true);
+		list.add(3, 5, 1, 2, 4, false);
+		list.add(4, 5, 0, 2, 3, false);
+		
+		assertThat(list.size(), is(3));
+		assertThat(list.getSourceInstruction(0), is(-1));
+		assertThat(list.getDestinationInstruction(0), is(2));
+		assertThat(list.isLocal(0), is(true));
+		assertThat(list.isParameter(0), is(true));
+		assertThat(list.getSourceInstruction(1), is(3));
+		assertThat(list.getDestinationOperandIndex(1), is(1));
+		assertThat(list.getDestinationOperandCount(1), is(2));
+		assertThat(list.getVariableIndex(1), is(4));
+		assertThat(list.isLocal(1), is(false));
+		assertThat(list.isParameter(1), is(false));
+		assertThat(list.getDestinationOperandIndex(2), is(0));
+		
+		DataFlowEdge e = list.get(1);
+		assertThat(e.getSourceInstruction(), is(3));
+		assertThat(e.getDestinationInstruction(), is(5));
+		assertThat(e.getDestinationOperandIndex(), is(1));
+		assertThat(e.getDestinationOperandCount(), is(2));
+		assertThat(e.getVariableIndex(), is(4));
+		assertThat(e.isLocal(), is(false));
+		assertThat(e, is(list.get(1)));
+		assertThat(list.indexOf(new DataFlowEdge(4, 5, 0, 2, 3, false)), is(2));
+	}
+	
+	@Test
+	public void testCopy() {
+		List<DataFlowEdge> edges = new ArrayList<DataFlowEdge>();
+		edges.add(new DataFlowEdge(0, 1, 0, 1, 0, false));
+		edges.add(new DataFlowEdge(2, 3, 0, 1, 65535, true));
+		DataFlowEdgeList list = new DataFlowEdgeList(edges);
+		assertThat(list, is(edges));
+		assertThat(list.getVariableIndex(1), is(65535));
+	}
+	
+	@Test
+	public void testFreeze() {
+		DataFlowEdgeList list = new DataFlowEdgeList(4);
+		list.add(0, 1, 0, 1, 0, false);
+		list.freeze();
+		assertThat(list.size(), is(1));
+		try {
+			list.add(1, 2, 0, 1, 0, false);
+			Assert.fail();
+		} catch (UnsupportedOperationException e) {
+		}
+		try {
+			list.add(new DataFlowEdge(1, 2, 0, 1, 0, false));
+			Assert.fail();
+		} catch (UnsupportedOperationException e) {
+		}
+		try {
+			list.getSourceInstruction(1);
+			Assert.fail();
+		} catch (IndexOutOfBoundsException e) {
+		}
+	}
+}
@@ -15,9 +15,13 @@ import org.objectweb.asm.tree.MethodInsnNode;
 import soba.core.ClassInfo;
 import soba.core.ExampleProgram;
 import soba.core.FieldInfo;
+import soba.core.IDynamicBindingResolver;
 import soba.core.JavaProgram;
 import soba.core.JavaProgramTest;
 import soba.core.MethodInfo;
+import soba.core.method.CallSite;
+import soba.util.IntPairList;
+import soba.util.ObjectIdMap;
 
 public class VTAResolverTest implements ExampleProgram {
 
@@ -233,6 +237,38 @@ public class VTAResolverTest implements ExampleProgram {
 		assertThat(counter, is(2));
 	}
 	
+	@Test
+	public void testResolveCalls() {
+		checkResolveCalls(resolver);
+		checkResolveCalls(program.getClassHierarchy());
+		checkResolveCalls(CallResolver.getCHA(program));
+		checkResolveCalls(CallResolver.getVTA(program));
+	}
+	
+	private void checkResolveCalls(IDynamicBindingResolver r) {
+		ObjectIdMap<MethodInfo> ids = new ObjectIdMap<>(1024);
+		IntPairList result = new IntPairList();
+		int total = 0;
+		for (ClassInfo c: program.getClasses()) {
+			for (MethodInfo m: c.getMethods()) {
+				List<CallSite> callSites = m.getCallSites();
+				result.clear();
+				r.resolveCalls(callSites, ids, result);
+				int index = 0;
+				for (int i=0; i<callSites.size(); ++i) {
+					for (MethodInfo callee: r.resolveCall(callSites.get(i))) {
+						assertThat(result.getFirstValue(index), is(i));
+						assertThat(ids.getItem(result.getSecondValue(index)), is(callee));
+						index++;
+					}
+				}
+				assertThat(result.size(), is(index));
+				total += index;
+			}
+		}
+		assertThat(total, is(greaterThan(0)));
+	}
+	
 	@Test
 	public void testReflection2() {
 		ClassInfo c = program.getClassInfo("soba/testdata/ReflectionCode");
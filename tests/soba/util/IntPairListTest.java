@@ -23,6 +23,12 @@ public class IntPairListTest {
 		assertThat(list.getFirstValue(2), is(5));
 		assertThat(list.getSecondValue(2), is(6));
 		assertThat(list.size(), is(3));
+		
+		list.clear();
+		assertThat(list.size(), is(0));
+		list.add(7, 8);
+		assertThat(list.getFirstValue(0), is(7));
+		assertThat(list.getSecondValue(0), is(8));
 	}
 
 	@Test
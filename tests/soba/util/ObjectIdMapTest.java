@@ -26,6 +26,9 @@ public class ObjectIdMapTest {
 		assertThat(idMap.getItem(idD), is("d"));
 		assertThat(idMap.getItem(-1), is(nullValue()));
 		assertThat(idMap.getItem(4), is(nullValue()));
+		assertThat(idMap.contains("ab"), is(true));
+		assertThat(idMap.contains("e"), is(false));
+		assertThat(idMap.size(), is(3));
 	}
 	
 	@Test
@@ -1,10 +1,47 @@
 package soba.util;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import soba.util.files.FileUtil;
+import soba.util.files.IClassList;
+import soba.util.files.IClassListCallback;
 
 public class TestUtil {
 
 	public static File getTestFile(String relativePath) {
 		return new File("target/test-classes/", relativePath);
 	}
+
+	/**
+	 * @return the names of class files passed by a class list, in the order of the callback.
+	 * An empty file or an error reported by the list fails the test.
+	 */
+	public static List<String> listClasses(IClassList list) {
+		final List<String> names = new ArrayList<>();
+		list.process(new IClassListCallback() {
+
+			@Override
+			public boolean isTarget(String name) {
+				return name.endsWith(".class");
+			}
+
+			@Override
+			public void process(String name, InputStream stream) throws IOException {
+				if (FileUtil.readFully(stream).length == 0) {
+					throw new AssertionError("Empty class file: " + name);
+				}
+				names.add(name);
+			}
+
+			@Override
+			public boolean reportError(String name, Exception e) {
+				throw new AssertionError(name, e);
+			}
+		});
+		return names;
+	}
 }
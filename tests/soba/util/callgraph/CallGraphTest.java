@@ -3,6 +3,8 @@ package soba.util.callgraph;
 import static org.hamcrest.MatcherAssert.*;
 import static org.hamcrest.Matchers.*;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.junit.BeforeClass;
@@ -13,6 +15,7 @@ import soba.core.ExampleProgram;
 import soba.core.JavaProgram;
 import soba.core.JavaProgramTest;
 import soba.core.MethodInfo;
+import soba.core.ProgramOptions;
 
 public class CallGraphTest {
 
@@ -82,4 +85,28 @@ public class CallGraphTest {
 		assertThat(callers, containsInAnyOrder(caller1, caller2, caller3));
 	}
 	
+	@Test
+	public void testFrozenHierarchy() {
+		ProgramOptions options = new ProgramOptions();
+		options.setFrozenHierarchy(true);
+		JavaProgram frozen = JavaProgramTest.readExampleProgram(options);
+		assertThat(frozen.getClassHierarchy().isFrozen(), is(true));
+		assertThat(program.getClassHierarchy().isFrozen(), is(false));
+		
+		CallGraph g = new CallGraph(frozen);
+		assertThat(g.size(), is(callGraph.size()));
+		for (MethodInfo m: callGraph.getMethods()) {
+			MethodInfo another = frozen.getClassInfo(m.getClassName()).findMethod(m.getMethodName(), m.getDescriptor());
+			assertThat(getMethodKeys(g.getCallees(another)), is(getMethodKeys(callGraph.getCallees(m))));
+		}
+	}
+	
+	private static List<String> getMethodKeys(List<MethodInfo> methods) {
+		List<String> keys = new ArrayList<>();
+		for (MethodInfo m: methods) {
+			keys.add(m.getMethodKey());
+		}
+		Collections.sort(keys);
+		return keys;
+	}
 }
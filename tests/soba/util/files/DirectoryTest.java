@@ -4,10 +4,24 @@ import static org.hamcrest.MatcherAssert.*;
 import static org.hamcrest.Matchers.*;
 import static org.junit.Assume.*;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import soba.util.TestUtil;
+
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
 
 public class DirectoryTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
 	
 	@Test
 	public void testListSubdirectories() {
@@ -23,5 +37,51 @@ public class DirectoryTest {
 		assertThat(dir.length, is(1));
 		assertThat(subdirs[0].getDirectory(), is(soba));
 	}
+	
+	@Test
+	public void testFastTraversal() {
+		File f = TestUtil.getTestFile("soba/testdata");
+		List<String> expected = TestUtil.listClasses(new Directory(f));
+		assertThat(expected, hasSize(22));
+		
+		Directory fast = new Directory(f);
+		fast.enableFastTraversal();
+		List<String> sequential = TestUtil.listClasses(fast);
+		assertThat(new HashSet<>(sequential), is(new HashSet<>(expected)));
+		List<String> sorted = new ArrayList<>(sequential);
+		Collections.sort(sorted);
+		assertThat(sequential, is(sorted));
+
+		Directory parallel = new Directory(f);
+		parallel.setParallelism(4);
+		assertThat(TestUtil.listClasses(parallel), is(sequential));
+	}
+
+	@Test
+	public void testParallelTraversalOfDeepTree() throws IOException {
+		File root = folder.newFolder("root");
+		File d = root;
+		for (int i=0; i<6; ++i) {
+			for (int j=0; j<3; ++j) {
+				new File(d, "sub" + j).mkdir();
+				Files.write(new File(d, "C" + j + ".class").toPath(), new byte[] { (byte)i });
+			}
+			d = new File(d, "sub0");
+		}
+		try {
+			Files.createSymbolicLink(new File(d, "loop").toPath(), root.toPath());
+		} catch (IOException|UnsupportedOperationException e) {
+			assumeTrue(false);
+		}
+		
+		Directory fast = new Directory(root);
+		fast.enableFastTraversal();
+		List<String> sequential = TestUtil.listClasses(fast);
+		assertThat(sequential, hasSize(18));
+		
+		Directory parallel = new Directory(root);
+		parallel.setParallelism(3);
+		assertThat(TestUtil.listClasses(parallel), is(sequential));
+	}
 
 }
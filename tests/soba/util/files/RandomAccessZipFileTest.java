@@ -0,0 +1,102 @@
+package soba.util.files;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import soba.util.TestUtil;
+
+public class RandomAccessZipFileTest {
+
+	@ClassRule
+	public static TemporaryFolder folder = new TemporaryFolder();
+
+	private static File jar;
+	private static File nestedJar;
+
+	@BeforeClass
+	public static void createJar() throws IOException {
+		jar = folder.newFile("testdata.jar");
+		File dir = TestUtil.getTestFile("soba/testdata");
+		try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jar))) {
+			out.putNextEntry(new ZipEntry("META-INF/MANIFEST.MF"));
+			out.write("Manifest-Version: 1.0\n".getBytes("UTF-8"));
+			out.closeEntry();
+			addDirectory(out, dir, "soba/testdata/");
+		}
+		
+		// A fat jar including the jar directly and through another nested jar
+		File innerJar = folder.newFile("inner.jar");
+		try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(innerJar))) {
+			addFile(out, jar, "lib/testdata.jar");
+		}
+		nestedJar = folder.newFile("nested.jar");
+		try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(nestedJar))) {
+			addFile(out, jar, "BOOT-INF/lib/testdata.jar");
+			addFile(out, innerJar, "BOOT-INF/lib/inner.jar");
+		}
+	}
+	
+	private static void addFile(ZipOutputStream out, File f, String name) throws IOException {
+		out.putNextEntry(new ZipEntry(name));
+		try (InputStream in = new FileInputStream(f)) {
+			out.write(FileUtil.readFully(in));
+		}
+		out.closeEntry();
+	}
+
+	private static void addDirectory(ZipOutputStream out, File dir, String prefix) throws IOException {
+		for (File f: dir.listFiles()) {
+			if (f.isDirectory()) {
+				addDirectory(out, f, prefix + f.getName() + "/");
+			} else {
+				addFile(out, f, prefix + f.getName());
+			}
+		}
+	}
+
+	@Test
+	public void testProcess() {
+		List<String> expected = TestUtil.listClasses(new ZipFile(jar));
+		assertThat(expected, hasSize(22));
+
+		RandomAccessZipFile zip = new RandomAccessZipFile(jar);
+		assertThat(TestUtil.listClasses(zip), is(expected));
+
+		zip.setParallelism(4);
+		assertThat(TestUtil.listClasses(zip), is(expected));
+	}
+
+	@Test
+	public void testNestedArchives() {
+		ZipFile stream = new ZipFile(nestedJar);
+		stream.enableRecursiveSearch();
+		List<String> expected = TestUtil.listClasses(stream);
+		assertThat(expected, hasSize(44));
+		
+		RandomAccessZipFile zip = new RandomAccessZipFile(nestedJar);
+		assertThat(TestUtil.listClasses(zip), is(empty()));
+		
+		zip.enableRecursiveSearch();
+		assertThat(TestUtil.listClasses(zip), is(expected));
+		zip.setParallelism(4);
+		assertThat(TestUtil.listClasses(zip), is(expected));
+		zip.close();
+		assertThat(TestUtil.listClasses(zip), is(expected));
+		zip.close();
+	}
+
+}